@@ -44,7 +44,7 @@ public class GoogleBooksApiService {
             .build();
     }
 
-    public void fetchAndSaveBooks(String query, int maxResults) {
+    public List<Book> fetchAndSaveBooks(String query, int maxResults) {
         if (maxResults > 40) {
             maxResults = 40;
             logger.warn("Google Books API maxResults limit is 40. Adjusted to 40.");
@@ -59,14 +59,16 @@ public class GoogleBooksApiService {
 
             if (fetchedBooks != null && !fetchedBooks.isEmpty()) {
                 logger.info("Fetched {} books from Google Books API.", fetchedBooks.size());
-                bookRepository.saveAll(fetchedBooks);
-                logger.info("Successfully saved {} books to the database.", fetchedBooks.size());
+                List<Book> savedBooks = bookRepository.saveAll(fetchedBooks);
+                logger.info("Successfully saved {} books to the database.", savedBooks.size());
+                return savedBooks;
             } else {
                 logger.warn("No books fetched or parsed from Google Books API for query: {}", query);
             }
         } catch (Exception e) {
             logger.error("Error during fetching and saving books from Google Books API for query '{}': {}", query, e.getMessage(), e);
         }
+        return new ArrayList<>();
     }
 
     public Mono<List<Book>> searchBooks(String query, int maxResults) {
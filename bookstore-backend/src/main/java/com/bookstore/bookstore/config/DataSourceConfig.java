@@ -0,0 +1,105 @@
+package com.bookstore.bookstore.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The application DataSource: the {@code spring.datasource} primary plus the read replicas listed in
+ * {@code datasource.replicas.urls}, routed by {@link ReadWriteRoutingDataSource}. With no replicas
+ * configured every connection comes from the primary.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Value("${datasource.replicas.urls:}")
+    private String[] replicaUrls;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                        @Value("${datasource.replicas.username:${spring.datasource.username:}}") String username,
+                                                        @Value("${datasource.replicas.password:${spring.datasource.password:}}") String password,
+                                                        @Value("${datasource.replicas.max-pool-size:10}") int maxPoolSize,
+                                                        @Value("${datasource.replicas.connection-timeout-ms:2000}") long connectionTimeoutMillis,
+                                                        @Value("${datasource.replicas.validation-query:SELECT 1}") String validationQuery,
+                                                        @Value("${datasource.replicas.read-your-writes-ms:5000}") long readYourWritesMillis) {
+        List<DataSource> replicas = new ArrayList<>();
+        List<String> urls = replicaUrls();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + i);
+            config.setJdbcUrl(urls.get(i));
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(maxPoolSize);
+            config.setConnectionTimeout(connectionTimeoutMillis);
+            config.setReadOnly(true);
+            // A replica that is down at startup is left out of rotation instead of failing the application.
+            config.setInitializationFailTimeout(-1);
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas, validationQuery, readYourWritesMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /** Replaces Boot's JPA transaction manager, which would let replica reads fill the second-level cache. */
+    @Bean
+    public PlatformTransactionManager transactionManager(ReadWriteRoutingDataSource routingDataSource,
+                                                         ObjectProvider<TransactionManagerCustomizers> customizers) {
+        ReplicaAwareTransactionManager transactionManager = new ReplicaAwareTransactionManager(routingDataSource);
+        customizers.ifAvailable(customizer -> customizer.customize(transactionManager));
+        return transactionManager;
+    }
+
+    /**
+     * Hibernate holds a session's connection until the session closes by default, which under
+     * open-in-view would carry a replica connection picked by a read-only transaction into the
+     * request's later writes. With replicas, connections are released after every transaction so
+     * each one is routed on its own.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer connectionHandlingCustomizer() {
+        return hibernateProperties -> {
+            if (!replicaUrls().isEmpty()) {
+                hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                        PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+            }
+        };
+    }
+
+    private List<String> replicaUrls() {
+        return Arrays.stream(replicaUrls)
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
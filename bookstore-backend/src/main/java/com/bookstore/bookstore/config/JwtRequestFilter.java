@@ -1,6 +1,8 @@
 package com.bookstore.bookstore.config;
 
 import com.bookstore.bookstore.service.CustomUserDetailsService;
+import com.bookstore.bookstore.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -25,10 +27,13 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
     private final CustomUserDetailsService userDetailsService;
     private final JwtUtil jwtUtil;
+    private final TokenRevocationService revocationService;
 
-    public JwtRequestFilter(CustomUserDetailsService userDetailsService, JwtUtil jwtUtil) {
+    public JwtRequestFilter(CustomUserDetailsService userDetailsService, JwtUtil jwtUtil,
+                            TokenRevocationService revocationService) {
         this.userDetailsService = userDetailsService;
         this.jwtUtil = jwtUtil;
+        this.revocationService = revocationService;
     }
 
     @Override
@@ -38,12 +43,18 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         final String authorizationHeader = request.getHeader("Authorization");
 
         String username = null;
-        String jwt = null;
+        Claims claims = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+            String jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                // Verified once; the claims serve every check below.
+                claims = jwtUtil.parseToken(jwt);
+                username = claims.getSubject();
+                if (revocationService.isRevoked(claims)) {
+                    logger.warn("Revoked JWT presented for request to {}", request.getRequestURI());
+                    username = null;
+                }
             } catch (ExpiredJwtException e) {
                 logger.warn("JWT Token has expired for request to {}", request.getRequestURI());
             } catch (Exception e) {
@@ -54,7 +65,7 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
 
-            if (jwt != null && jwtUtil.validateToken(jwt, userDetails)) { 
+            if (jwtUtil.validateToken(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 usernamePasswordAuthenticationToken
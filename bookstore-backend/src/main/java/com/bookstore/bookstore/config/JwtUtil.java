@@ -1,38 +1,83 @@
-package com.bookstore.bookstore.config; 
+package com.bookstore.bookstore.config;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys; 
+import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
-import jakarta.annotation.PostConstruct;  
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
-@Component 
+/**
+ * Issues and verifies JWTs. {@link #parseToken(String)} verifies a token once and returns its claims,
+ * which callers then read instead of parsing the token again. Recently verified tokens are kept by
+ * SHA-256 hash, up to {@code jwt.verified-cache.max-entries} of them, until they expire, so a client
+ * reusing its token skips the signature check and JSON parsing on later requests.
+ */
+@Component
 public class JwtUtil {
 
-    @Value("${jwt.secret:defaultSecretKeyForDevelopmentOnlyPleaseChangeInProduction}")
-    private String secretString;
-    private Key secretKey;
+    private final Key secretKey;
+    private final long expirationTime;
+    // Immutable once built, so one instance serves every request thread.
+    private final JwtParser parser;
+    private final int verifiedCacheMaxEntries;
 
-   
-    @Value("${jwt.expiration:36000000}") 
-    private long expirationTime;
+    // Access order, so the least recently used token is dropped first.
+    private final LinkedHashMap<String, Claims> verifiedTokens = new LinkedHashMap<>(16, 0.75f, true);
 
-   
-    @PostConstruct
-    public void init() {
-        if (secretString.length() < 32) { 
-            secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    public JwtUtil(@Value("${jwt.secret:defaultSecretKeyForDevelopmentOnlyPleaseChangeInProduction}") String secretString,
+                   @Value("${jwt.expiration:36000000}") long expirationTime,
+                   @Value("${jwt.verified-cache.max-entries:10000}") int verifiedCacheMaxEntries) {
+        if (secretString.length() < 32) {
+            this.secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
         } else {
-            secretKey = Keys.hmacShaKeyFor(secretString.getBytes());
+            this.secretKey = Keys.hmacShaKeyFor(secretString.getBytes());
         }
+        this.expirationTime = expirationTime;
+        this.parser = Jwts.parserBuilder().setSigningKey(secretKey).build();
+        this.verifiedCacheMaxEntries = verifiedCacheMaxEntries;
+    }
+
+    /**
+     * Verifies {@code token} and returns its claims.
+     * @throws io.jsonwebtoken.ExpiredJwtException if the token has expired.
+     * @throws io.jsonwebtoken.JwtException if the token is malformed or its signature does not match.
+     */
+    public Claims parseToken(String token) {
+        String key = hash(token);
+        synchronized (verifiedTokens) {
+            Claims cached = verifiedTokens.get(key);
+            if (cached != null) {
+                if (!isExpired(cached)) {
+                    return cached;
+                }
+                verifiedTokens.remove(key);
+            }
+        }
+        // Expired tokens fail here, with the same exception as an uncached one.
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (verifiedCacheMaxEntries > 0) {
+            synchronized (verifiedTokens) {
+                verifiedTokens.put(key, claims);
+                if (verifiedTokens.size() > verifiedCacheMaxEntries) {
+                    verifiedTokens.remove(verifiedTokens.keySet().iterator().next());
+                }
+            }
+        }
+        return claims;
     }
 
     public String extractUsername(String token) {
@@ -44,16 +89,7 @@ public class JwtUtil {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(secretKey).build().parseClaimsJws(token).getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return claimsResolver.apply(parseToken(token));
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -65,14 +101,34 @@ public class JwtUtil {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
+                // Token id, so one token can be revoked.
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expirationTime)) 
+                .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
                 .signWith(secretKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(parseToken(token), userDetails);
+    }
+
+    /** Checks already verified claims against the user, without touching the token again. */
+    public boolean validateToken(Claims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.getSubject()) && !isExpired(claims);
+    }
+
+    private static boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
-}
\ No newline at end of file
+}
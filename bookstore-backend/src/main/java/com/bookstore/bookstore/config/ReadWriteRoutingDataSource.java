@@ -0,0 +1,230 @@
+package com.bookstore.bookstore.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to everything
+ * else. Replicas are taken round-robin among those whose last health check passed; a replica that
+ * fails to hand out a connection is skipped until the next check, and reads fall back to the
+ * primary when no replica is up. A user whose read-write transaction committed less than
+ * {@code datasource.replicas.read-your-writes-ms} ago reads from the primary as well, so they see
+ * their own writes before the replicas catch up.
+ * <p>
+ * Reads whose results outlive the request, such as those filling a cache or an index, run inside
+ * {@link #readFromPrimary(Supplier)}, since a lagging replica would leave them stale until the next
+ * invalidation.
+ * <p>
+ * The read-only flag is only set once a transaction has begun, after the transaction manager asks
+ * for its connection, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which fetches the
+ * connection at the first statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    // Depth of the readFromPrimary scopes open on this thread.
+    private static final ThreadLocal<Integer> primaryScopes = ThreadLocal.withInitial(() -> 0);
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final String validationQuery;
+    private final long readYourWritesMillis;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    // Username to the time their last read-write transaction committed.
+    private final Map<String, Long> lastWriteAt = new ConcurrentHashMap<>();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, String validationQuery,
+                                      long readYourWritesMillis) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + i, replicas.get(i)));
+        }
+        this.validationQuery = validationQuery;
+        this.readYourWritesMillis = readYourWritesMillis;
+        checkReplicas();
+    }
+
+    /**
+     * Runs {@code read} with every transaction it begins reading from the primary. Scopes nest; a
+     * transaction already running when the scope opens keeps the connection it was routed to.
+     */
+    public static <T> T readFromPrimary(Supplier<T> read) {
+        enterPrimaryScope();
+        try {
+            return read.get();
+        } finally {
+            exitPrimaryScope();
+        }
+    }
+
+    static void enterPrimaryScope() {
+        primaryScopes.set(primaryScopes.get() + 1);
+    }
+
+    static void exitPrimaryScope() {
+        int depth = primaryScopes.get() - 1;
+        if (depth == 0) {
+            primaryScopes.remove();
+        } else {
+            primaryScopes.set(depth);
+        }
+    }
+
+    /**
+     * Whether a read-only transaction beginning now on this thread would be routed to a replica,
+     * which is the case unless a primary scope is open, the current user wrote recently, or no
+     * replica is healthy.
+     */
+    boolean readsFromReplica() {
+        if (replicas.isEmpty() || primaryScopes.get() > 0) {
+            return false;
+        }
+        String username = currentUsername();
+        if (username != null && wroteRecently(username)) {
+            return false;
+        }
+        return replicas.stream().anyMatch(replica -> replica.healthy);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicas.isEmpty()) {
+            return primary.getConnection();
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            recordWriteOnCommit();
+            return primary.getConnection();
+        }
+        if (!readsFromReplica()) {
+            return primary.getConnection();
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.healthy = false;
+                logger.warn("Replica {} failed to hand out a connection, skipping it until it passes a health check: {}",
+                        replica.name, e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Routed connections use the credentials configured for each DataSource");
+    }
+
+    /**
+     * Runs the validation query on every replica and takes it into or out of rotation accordingly,
+     * and forgets writes older than the read-your-writes window.
+     */
+    @Scheduled(initialDelayString = "${datasource.replicas.health-check-interval-ms:5000}",
+               fixedDelayString = "${datasource.replicas.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy = isHealthy(replica);
+            if (healthy != replica.healthy) {
+                if (healthy) {
+                    logger.info("Replica {} passed its health check and takes reads", replica.name);
+                } else {
+                    logger.warn("Replica {} failed its health check, its reads go elsewhere", replica.name);
+                }
+            }
+            replica.healthy = healthy;
+        }
+        long cutoff = System.currentTimeMillis() - readYourWritesMillis;
+        lastWriteAt.values().removeIf(writtenAt -> writtenAt < cutoff);
+    }
+
+    private boolean isHealthy(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(validationQuery);
+            return true;
+        } catch (SQLException e) {
+            logger.debug("Health check of replica {} failed: {}", replica.name, e.getMessage());
+            return false;
+        }
+    }
+
+    // Any read-write transaction counts as a write; it is recorded once it commits.
+    private void recordWriteOnCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        String username = currentUsername();
+        if (username == null) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastWriteAt.put(username, System.currentTimeMillis());
+            }
+        });
+    }
+
+    private boolean wroteRecently(String username) {
+        Long writtenAt = lastWriteAt.get(username);
+        return writtenAt != null && System.currentTimeMillis() - writtenAt < readYourWritesMillis;
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /** Closes the replica pools, which are created for this router; the primary is managed separately. */
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.bookstore.bookstore.config;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Settles where each read-only transaction reads from when it begins, so the second-level cache
+ * is only filled from the primary. A transaction bound for a replica reads the cache but does not
+ * put what it loads into it: the replica may not have caught up with a write that just evicted
+ * those entries. Every other read-only transaction is pinned to the primary until it completes,
+ * so it cannot end up on a replica while running with puts enabled.
+ */
+public class ReplicaAwareTransactionManager extends JpaTransactionManager {
+
+    private static final String STORE_MODE = AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE;
+
+    private final ReadWriteRoutingDataSource routingDataSource;
+    // What to undo when each transaction begun on this thread completes, innermost first.
+    private final ThreadLocal<Deque<Runnable>> completions = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public ReplicaAwareTransactionManager(ReadWriteRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+        Runnable completion = () -> { };
+        if (definition.isReadOnly()) {
+            if (routingDataSource.readsFromReplica()) {
+                // A property rather than the session's cache mode, which find() overrides with the property.
+                EntityManager entityManager = currentEntityManager();
+                Object previous = entityManager.getProperties().getOrDefault(STORE_MODE, CacheStoreMode.USE);
+                entityManager.setProperty(STORE_MODE, CacheStoreMode.BYPASS);
+                completion = () -> entityManager.setProperty(STORE_MODE, previous);
+            } else {
+                ReadWriteRoutingDataSource.enterPrimaryScope();
+                completion = ReadWriteRoutingDataSource::exitPrimaryScope;
+            }
+        }
+        completions.get().push(completion);
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        Deque<Runnable> pending = completions.get();
+        try {
+            // Undone while the session is still open; under open-in-view it outlives the transaction.
+            pending.pop().run();
+        } finally {
+            if (pending.isEmpty()) {
+                completions.remove();
+            }
+            super.doCleanupAfterCompletion(transaction);
+        }
+    }
+
+    private EntityManager currentEntityManager() {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+        return holder.getEntityManager();
+    }
+}
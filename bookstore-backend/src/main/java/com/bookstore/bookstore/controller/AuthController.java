@@ -1,21 +1,31 @@
 package com.bookstore.bookstore.controller;
 
 import com.bookstore.bookstore.config.JwtUtil;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import com.bookstore.bookstore.exception.LoginCapacityExceededException;
 import com.bookstore.bookstore.model.User;
-import com.bookstore.bookstore.service.CustomUserDetailsService;
+import com.bookstore.bookstore.service.LoginService;
+import com.bookstore.bookstore.service.TokenRevocationService;
 import com.bookstore.bookstore.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -23,10 +33,7 @@ import java.util.stream.Collectors;
 public class AuthController {
 
     @Autowired
-    private AuthenticationManager authenticationManager;
-
-    @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private LoginService loginService;
 
     @Autowired
     private JwtUtil jwtUtil;
@@ -34,38 +41,121 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TokenRevocationRequest {
+        private String token;
+    }
+
+    /**
+     * Verifies the password on the login pool and answers asynchronously, so the request thread is
+     * free while the hash runs. Answers 503 with Retry-After when the pool is saturated.
+     */
     @PostMapping("/login")
-    public ResponseEntity<?> createAuthenticationToken(@RequestBody User authenticationRequest) {
+    public CompletableFuture<ResponseEntity<?>> createAuthenticationToken(@RequestBody User authenticationRequest) {
+        CompletableFuture<Authentication> verification;
         try {
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(authenticationRequest.getUsername(), authenticationRequest.getPassword())
-            );
-        } catch (BadCredentialsException e) {
-            return new ResponseEntity<>(Collections.singletonMap("message", "Incorrect username or password."), HttpStatus.UNAUTHORIZED);
-        } catch (Exception e) {
-            return new ResponseEntity<>(Collections.singletonMap("message", "Authentication failed: " + e.getMessage()), HttpStatus.UNAUTHORIZED);
+            verification = loginService.authenticate(authenticationRequest.getUsername(), authenticationRequest.getPassword());
+        } catch (LoginCapacityExceededException e) {
+            return CompletableFuture.completedFuture(loginUnavailable(e));
         }
+        return verification.handle((authentication, failure) -> {
+            if (failure != null) {
+                return loginFailed(failure instanceof CompletionException ? failure.getCause() : failure);
+            }
+            return loginSucceeded((UserDetails) authentication.getPrincipal());
+        });
+    }
 
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(authenticationRequest.getUsername());
+    private ResponseEntity<?> loginSucceeded(UserDetails userDetails) {
         final String jwt = jwtUtil.generateToken(userDetails);
 
         Map<String, Object> response = new HashMap<>();
         response.put("jwt", jwt);
         response.put("username", userDetails.getUsername());
 
-        List<String> userRoles;
-        if (userDetails instanceof User) {
-            userRoles = Collections.singletonList(((User) userDetails).getRole());
-        } else {
-            userRoles = userDetails.getAuthorities().stream()
+        List<String> userRoles = userDetails.getAuthorities().stream()
                                      .map(grantedAuthority -> grantedAuthority.getAuthority())
                                      .collect(Collectors.toList());
-        }
         response.put("roles", userRoles);
 
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    private ResponseEntity<?> loginFailed(Throwable failure) {
+        if (failure instanceof LoginCapacityExceededException) {
+            return loginUnavailable((LoginCapacityExceededException) failure);
+        }
+        if (failure instanceof BadCredentialsException) {
+            return new ResponseEntity<>(Collections.singletonMap("message", "Incorrect username or password."), HttpStatus.UNAUTHORIZED);
+        }
+        return new ResponseEntity<>(Collections.singletonMap("message", "Authentication failed: " + failure.getMessage()), HttpStatus.UNAUTHORIZED);
+    }
+
+    private ResponseEntity<?> loginUnavailable(LoginCapacityExceededException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Collections.singletonMap("message", e.getMessage()));
+    }
+
+    /** Revokes the bearer token of this request. */
+    @PostMapping("/logout")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return new ResponseEntity<>(Collections.singletonMap("message", "Logout needs the bearer token to revoke."), HttpStatus.BAD_REQUEST);
+        }
+        revocationService.revoke(jwtUtil.parseToken(authorization.substring(7)));
+        return ResponseEntity.ok(Collections.singletonMap("message", "Logged out."));
+    }
+
+    /** Revokes every token of the current user issued until now, on every device. */
+    @PostMapping("/logout-all")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> logoutEverywhere(Authentication authentication) {
+        revocationService.revokeAll(authentication.getName());
+        return ResponseEntity.ok(Collections.singletonMap("message", "Logged out on every device."));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/revoke")
+    public ResponseEntity<?> revokeToken(@RequestBody TokenRevocationRequest request) {
+        if (request.getToken() == null || request.getToken().isBlank()) {
+            return new ResponseEntity<>(Collections.singletonMap("message", "A token is required."), HttpStatus.BAD_REQUEST);
+        }
+        try {
+            revocationService.revoke(jwtUtil.parseToken(request.getToken()));
+        } catch (ExpiredJwtException e) {
+            return ResponseEntity.ok(Collections.singletonMap("message", "Token has already expired."));
+        } catch (JwtException e) {
+            return new ResponseEntity<>(Collections.singletonMap("message", "Invalid token: " + e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(Collections.singletonMap("message", "Token revoked."));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/revoke-all/{username}")
+    public ResponseEntity<?> revokeAllTokens(@PathVariable String username) {
+        revocationService.revokeAll(username);
+        return ResponseEntity.ok(Collections.singletonMap("message", "All tokens of " + username + " revoked."));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/revocation/stats")
+    public ResponseEntity<Map<String, Long>> getRevocationStats() {
+        return ResponseEntity.ok(revocationService.stats());
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/login/stats")
+    public ResponseEntity<Map<String, Long>> getLoginStats() {
+        return ResponseEntity.ok(loginService.stats());
+    }
+
  
     @PostMapping("/register") 
     public ResponseEntity<String> registerUser(@RequestBody User user) {
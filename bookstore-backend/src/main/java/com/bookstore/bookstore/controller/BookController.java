@@ -1,13 +1,40 @@
 package com.bookstore.bookstore.controller;
 
+import com.bookstore.bookstore.exception.InsufficientStockException;
+import com.bookstore.bookstore.exception.ResourceNotFoundException;
 import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.payload.response.BookSearchResponse;
+import com.bookstore.bookstore.payload.response.BookSuggestion;
+import com.bookstore.bookstore.payload.response.MessageResponse;
+import com.bookstore.bookstore.payload.response.StockLevel;
+import com.bookstore.bookstore.service.BookFieldSelection;
 import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.CatalogExportService;
+import com.bookstore.bookstore.service.CatalogImportService;
+import com.bookstore.bookstore.service.CatalogResponseCache;
+import com.bookstore.bookstore.service.ResourceVersionTracker;
+import com.bookstore.bookstore.service.StockService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize; 
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/books")
@@ -15,18 +42,139 @@ import java.util.List;
 public class BookController {
 
     private final BookService bookService;
+    private final CatalogResponseCache responseCache;
+    private final ResourceVersionTracker versionTracker;
+    private final CatalogExportService catalogExportService;
+    private final CatalogImportService catalogImportService;
+    private final StockService stockService;
 
+    /**
+     * Keyset-paginated catalog listing. Pass {@code all=true} to get the legacy unpaged list.
+     * Any of {@code author}, {@code price}, {@code inStock} or {@code facets=true} switches to the
+     * faceted listing (id order) with per-facet counts. Repeat {@code author} for several authors;
+     * each value is taken whole, commas included.
+     * {@code fields} is "summary", "full" or a comma list of book fields; paged listings default to
+     * the summary (no description), {@code all=true} defaults to full.
+     * Answers 304 without any lookup when If-None-Match carries the current catalog version.
+     */
     @GetMapping
-    public ResponseEntity<List<Book>> getAllBooks() {
-        List<Book> books = bookService.getAllBooks();
-        return ResponseEntity.ok(books);
+    public ResponseEntity<?> getAllBooks(@RequestParam(defaultValue = "false") boolean all,
+                                         @RequestParam(required = false) String sort,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer size,
+                                         @RequestParam(required = false) List<String> price,
+                                         @RequestParam(required = false) Boolean inStock,
+                                         @RequestParam(defaultValue = "false") boolean facets,
+                                         @RequestParam(required = false) String fields,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                         WebRequest webRequest, HttpServletResponse response) {
+        varyByEncoding(response);
+        if (webRequest.checkNotModified(catalogEtag(acceptEncoding))) {
+            return null;
+        }
+        // Read raw: binding to a List would split "Doe, Jane" into two authors.
+        String[] author = webRequest.getParameterValues("author");
+        try {
+            BookFieldSelection selection = BookFieldSelection.parse(fields, all);
+            if (all) {
+                return cachedJson(responseCache.getOrLoad(CatalogResponseCache.LIST_KEY_PREFIX + "all&fields=" + selection.key(),
+                        () -> bookService.getAllBooks(selection)), acceptEncoding);
+            }
+            if (facets || author != null || price != null || inStock != null) {
+                if (sort != null && !"id".equalsIgnoreCase(sort)) {
+                    throw new IllegalArgumentException("Faceted listings are ordered by id only.");
+                }
+                List<String> authors = author == null ? List.of() : List.of(author);
+                List<String> priceBuckets = price == null ? List.of() : price;
+                String key = CatalogResponseCache.LIST_KEY_PREFIX + "author=" + keyPart(authors) + "&price=" + keyPart(priceBuckets)
+                        + "&inStock=" + inStock + "&cursor=" + cursor + "&size=" + size + "&fields=" + selection.key();
+                return cachedJson(responseCache.getOrLoad(key,
+                        () -> bookService.getFacetedPage(authors, priceBuckets, inStock, cursor, size, selection)), acceptEncoding);
+            }
+            String key = CatalogResponseCache.LIST_KEY_PREFIX + "sort=" + sort + "&cursor=" + cursor + "&size=" + size
+                    + "&fields=" + selection.key();
+            return cachedJson(responseCache.getOrLoad(key,
+                    () -> bookService.getBookPage(sort, cursor, size, selection)), acceptEncoding);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<BookSearchResponse> searchBooks(@RequestParam String q,
+                                                          @RequestParam(defaultValue = "0") int page,
+                                                          @RequestParam(required = false) Integer size,
+                                                          WebRequest webRequest) {
+        if (webRequest.checkNotModified(versionTracker.catalogEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok(bookService.searchBooks(q, page, size));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<BookSuggestion>> suggest(@RequestParam String prefix,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        WebRequest webRequest) {
+        if (webRequest.checkNotModified(versionTracker.catalogEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok(bookService.suggest(prefix, limit));
+    }
+
+    /**
+     * Streams the full catalog as NDJSON (default) or CSV without materializing it in memory.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCatalog(@RequestParam(defaultValue = "ndjson") String format) {
+        CatalogExportService.Format exportFormat;
+        try {
+            exportFormat = CatalogExportService.Format.from(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> catalogExportService.export(exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"catalog." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+    /**
+     * Bulk import from a JSON array (application/json) or CSV with a header row (text/csv), read
+     * from the request body as it streams in. Invalid rows are skipped and listed in the report.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_JSON_VALUE, "text/csv" })
+    public ResponseEntity<?> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                         InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(catalogImportService.importBooks(
+                    CatalogImportService.Format.fromContentType(contentType), body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Book> getBookById(@PathVariable Long id) {
-        return bookService.getBookById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getBookById(@PathVariable Long id,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                              WebRequest webRequest, HttpServletResponse response) {
+        varyByEncoding(response);
+        if (webRequest.checkNotModified(catalogEtag(acceptEncoding))) {
+            return null;
+        }
+        CatalogResponseCache.Entry entry = responseCache.getOrLoad(CatalogResponseCache.BOOK_KEY_PREFIX + id,
+                () -> bookService.getBookById(id).orElse(null));
+        if (entry == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return cachedJson(entry, acceptEncoding);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Long>> getCacheStats() {
+        return ResponseEntity.ok(responseCache.stats());
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -60,12 +208,109 @@ public class BookController {
 
     @PreAuthorize("hasRole('ADMIN')") 
     @PutMapping("/{id}/quantity")
-    public ResponseEntity<Book> updateBookQuantity(@PathVariable Long id, @RequestParam int quantityChange) {
+    public ResponseEntity<?> updateBookQuantity(@PathVariable Long id, @RequestParam int quantityChange) {
         try {
             Book updatedBook = bookService.updateBookQuantity(id, quantityChange);
             return ResponseEntity.ok(updatedBook);
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(null);
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * Applies several stock changes at once, all or nothing. Deltas for the same book are summed.
+     * Answers 404 if a book is missing and 409 if a change would make a quantity negative.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/stock-adjustments")
+    public ResponseEntity<?> adjustStock(@RequestBody List<StockAdjustmentRequest> adjustments) {
+        if (adjustments == null || adjustments.isEmpty()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("At least one adjustment is required."));
+        }
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (StockAdjustmentRequest adjustment : adjustments) {
+            if (adjustment.getBookId() == null || adjustment.getDelta() == null) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Each adjustment needs a bookId and a delta."));
+            }
+            deltas.merge(adjustment.getBookId(), adjustment.getDelta(), Integer::sum);
+        }
+        try {
+            List<StockLevel> levels = stockService.adjustAll(deltas);
+            return ResponseEntity.ok(levels);
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse(e.getMessage()));
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockAdjustmentRequest {
+        private Long bookId;
+        private Integer delta;
+    }
+
+    private ResponseEntity<byte[]> cachedJson(CatalogResponseCache.Entry entry, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (entry.getGzip() != null && acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(entry.getGzip());
+        }
+        return response.body(entry.getJson());
+    }
+
+    // Count plus URL-encoded values: unambiguous whatever the values contain, unlike List.toString.
+    private static String keyPart(List<String> values) {
+        StringBuilder part = new StringBuilder().append(values.size()).append(':');
+        for (String value : values) {
+            part.append(URLEncoder.encode(value, StandardCharsets.UTF_8)).append(',');
+        }
+        return part.toString();
+    }
+
+    // Gzip and identity bodies are different representations, so they get distinct strong tags.
+    private String catalogEtag(String acceptEncoding) {
+        String etag = versionTracker.catalogEtag();
+        return acceptsGzip(acceptEncoding) ? etag.substring(0, etag.length() - 1) + "-gz\"" : etag;
+    }
+
+    // Set before the ETag check so 304s, 404s and both body encodings all carry it.
+    private static void varyByEncoding(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    /**
+     * Whether Accept-Encoding allows gzip: its own q-value if listed, else that of "*", else no.
+     * A q-value of 0 (e.g. "gzip;q=0") refuses the coding.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = quality;
+            } else if (name.equals("*")) {
+                any = quality;
+            }
         }
+        double quality = gzip != null ? gzip : any != null ? any : 0;
+        return quality > 0;
     }
-}
\ No newline at end of file
+}
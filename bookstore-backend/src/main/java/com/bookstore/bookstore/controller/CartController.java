@@ -1,9 +1,13 @@
 package com.bookstore.bookstore.controller;
 
 import com.bookstore.bookstore.model.CartItem;
+import com.bookstore.bookstore.model.CartTotals;
 import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.service.AbandonedCartSweeper;
+import com.bookstore.bookstore.service.CartOperation;
 import com.bookstore.bookstore.service.CartService;
 import com.bookstore.bookstore.service.CustomUserDetailsService;
+import com.bookstore.bookstore.service.ResourceVersionTracker;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -15,12 +19,14 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.bookstore.bookstore.payload.response.MessageResponse;
 import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -32,6 +38,8 @@ public class CartController {
 
     private final CartService cartService;
     private final CustomUserDetailsService customUserDetailsService;
+    private final ResourceVersionTracker versionTracker;
+    private final AbandonedCartSweeper cartSweeper;
 
     private User getAuthenticatedUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -40,8 +48,8 @@ public class CartController {
             throw new IllegalStateException("User not authenticated.");
         }
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        logger.debug("Fetching user entity for username: {}", userDetails.getUsername());
-        return customUserDetailsService.loadUserEntityByUsername(userDetails.getUsername());
+        logger.debug("Resolving user entity for username: {}", userDetails.getUsername());
+        return customUserDetailsService.loadUserEntity(userDetails);
     }
 
     @Data
@@ -52,6 +60,13 @@ public class CartController {
         private Integer quantity;
     }
 
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CartBatchRequest {
+        private List<CartOperation> operations;
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -77,13 +92,42 @@ public class CartController {
         }
     }
 
+    /**
+     * Response for mutations called with {@code view=delta}: the changed line (or the id of the
+     * removed one) and the recomputed cart totals, instead of the whole cart.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    private static class CartDeltaResponse {
+        private CartItemDTO item;
+        private Long removedItemId;
+        private BigDecimal cartTotal;
+        private long lineCount;
+        private long itemCount;
+    }
+
+    private boolean isDeltaView(String view) {
+        return "delta".equalsIgnoreCase(view);
+    }
+
+    private CartDeltaResponse deltaResponse(User user, CartItem changedItem, Long removedItemId) {
+        CartTotals totals = cartService.getCartTotals(user);
+        return new CartDeltaResponse(changedItem == null ? null : new CartItemDTO(changedItem), removedItemId,
+                totals.getTotal(), totals.getLineCount(), totals.getItemCount());
+    }
+
     @PostMapping("/add")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Object> addBookToCart(@RequestBody CartItemRequest request) { 
+    public ResponseEntity<Object> addBookToCart(@RequestBody CartItemRequest request,
+                                                @RequestParam(defaultValue = "full") String view) { 
         logger.info("Received request to add book {} (qty {}) to cart.", request.bookId, request.quantity);
         try {
             User user = getAuthenticatedUser();
-            cartService.addBookToCart(user, request.bookId, request.quantity);
+            CartItem savedCartItem = cartService.addBookToCart(user, request.bookId, request.quantity);
+            if (isDeltaView(view)) {
+                return new ResponseEntity<>(deltaResponse(user, savedCartItem, null), HttpStatus.CREATED);
+            }
             List<CartItem> updatedCartItems = cartService.getUserCart(user);
             List<CartItemDTO> cartItemDTOs = updatedCartItems.stream()
                                                               .map(CartItemDTO::new)
@@ -98,11 +142,39 @@ public class CartController {
         }
     }
 
+    /**
+     * Applies a list of add/update/remove operations in one transaction and returns the resulting
+     * cart, e.g. to add a reading list or to merge a guest cart on login in one request.
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Object> applyCartBatch(@RequestBody CartBatchRequest request) {
+        logger.info("Received cart batch with {} operations.", request.getOperations() == null ? 0 : request.getOperations().size());
+        try {
+            User user = getAuthenticatedUser();
+            List<CartItem> cartItems = cartService.applyOperations(user, request.getOperations());
+            List<CartItemDTO> cartItemDTOs = cartItems.stream()
+                                                      .map(CartItemDTO::new)
+                                                      .collect(Collectors.toList());
+            return ResponseEntity.ok(cartItemDTOs);
+        } catch (RuntimeException e) {
+            logger.error("Error applying cart batch: {}", e.getMessage());
+            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            logger.error("Unexpected error applying cart batch: {}", e.getMessage(), e);
+            return new ResponseEntity<>(new MessageResponse("Error applying cart batch: " + e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @GetMapping
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<CartItemDTO>> getUserCart() {
+    public ResponseEntity<List<CartItemDTO>> getUserCart(WebRequest webRequest) {
         logger.info("Received request to get user's cart.");
         try {
+            String username = SecurityContextHolder.getContext().getAuthentication().getName();
+            if (webRequest.checkNotModified(versionTracker.cartEtag(username))) {
+                return null; // 304 Not Modified, answered before the user or cart is loaded
+            }
             User user = getAuthenticatedUser();
             List<CartItem> cartItems = cartService.getUserCart(user);
             List<CartItemDTO> cartItemDTOs = cartItems.stream()
@@ -120,11 +192,15 @@ public class CartController {
 
     @PutMapping("/update")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Object> updateCartItemQuantity(@RequestBody CartItemRequest request) { 
+    public ResponseEntity<Object> updateCartItemQuantity(@RequestBody CartItemRequest request,
+                                                         @RequestParam(defaultValue = "full") String view) { 
         logger.info("Received request to update cart item {} quantity to {}", request.getBookId(), request.getQuantity());
         try {
             User user = getAuthenticatedUser();
-            cartService.updateCartItemQuantity(user, request.getBookId(), request.getQuantity());
+            CartItem updatedCartItem = cartService.updateCartItemQuantity(user, request.getBookId(), request.getQuantity());
+            if (isDeltaView(view)) {
+                return ResponseEntity.ok(deltaResponse(user, updatedCartItem, updatedCartItem == null ? request.getBookId() : null));
+            }
             List<CartItem> updatedCartItems = cartService.getUserCart(user);
             List<CartItemDTO> cartItemDTOs = updatedCartItems.stream()
                                                               .map(CartItemDTO::new)
@@ -141,11 +217,15 @@ public class CartController {
 
     @DeleteMapping("/remove/{cartItemId}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Object> removeCartItem(@PathVariable Long cartItemId) { 
+    public ResponseEntity<Object> removeCartItem(@PathVariable Long cartItemId,
+                                                 @RequestParam(defaultValue = "full") String view) { 
         logger.info("Received request to remove cart item {}", cartItemId);
         try {
             User user = getAuthenticatedUser();
             cartService.removeCartItem(user, cartItemId);
+            if (isDeltaView(view)) {
+                return ResponseEntity.ok(deltaResponse(user, null, cartItemId));
+            }
             List<CartItem> updatedCartItems = cartService.getUserCart(user);
             List<CartItemDTO> cartItemDTOs = updatedCartItems.stream()
                                                               .map(CartItemDTO::new)
@@ -173,4 +253,10 @@ public class CartController {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/sweeper/stats")
+    public ResponseEntity<Map<String, Long>> getSweeperStats() {
+        return ResponseEntity.ok(cartSweeper.stats());
+    }
 }
\ No newline at end of file
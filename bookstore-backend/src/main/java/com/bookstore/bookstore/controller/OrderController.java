@@ -1,16 +1,24 @@
 package com.bookstore.bookstore.controller;
 
+import com.bookstore.bookstore.exception.InsufficientStockException;
 import com.bookstore.bookstore.model.Order;
+import com.bookstore.bookstore.model.User;
 import com.bookstore.bookstore.payload.response.MessageResponse;
+import com.bookstore.bookstore.payload.response.OrderPageResponse;
 import com.bookstore.bookstore.payload.response.OrderResponse;
+import com.bookstore.bookstore.service.CustomUserDetailsService;
+import com.bookstore.bookstore.service.IdempotencyStore;
 import com.bookstore.bookstore.service.OrderService;
+import com.bookstore.bookstore.service.ResourceVersionTracker;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -21,16 +29,40 @@ public class OrderController {
 
     @Autowired 
     private OrderService orderService;
+
+    @Autowired
+    private ResourceVersionTracker versionTracker;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
     
     @PostMapping
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')") 
-    public ResponseEntity<?> placeOrder() {
+    public ResponseEntity<?> placeOrder(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String username = authentication.getName();
 
+        if (idempotencyKey == null) {
+            return placeOrderFor(authentication);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return new ResponseEntity<>(new MessageResponse("Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters."), HttpStatus.BAD_REQUEST);
+        }
+        // Retries with the same key get the first response back instead of a second order.
+        return idempotencyStore.execute(username, idempotencyKey, () -> placeOrderFor(authentication));
+    }
+
+    private ResponseEntity<?> placeOrderFor(Authentication authentication) {
         try {
-            Order newOrder = orderService.placeOrder(username);
+            Order newOrder = orderService.placeOrder(currentUser(authentication));
             return new ResponseEntity<>(new OrderResponse(newOrder), HttpStatus.CREATED); // 201 Created
+        } catch (InsufficientStockException e) {
+            return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.CONFLICT); // 409 Conflict
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.BAD_REQUEST); // 400 Bad Request
         } catch (Exception e) {
@@ -38,14 +70,32 @@ public class OrderController {
         }
     }
 
+    /**
+     * The user's order history, newest first. Pass {@code size} and/or {@code cursor} to get a keyset
+     * page ({@link OrderPageResponse}) instead of the full list.
+     */
     @GetMapping
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<List<OrderResponse>> getUserOrders() {
+    public ResponseEntity<?> getUserOrders(@RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size,
+                                           WebRequest webRequest) {
         // Get the authenticated username
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String username = authentication.getName();
 
-        List<Order> orders = orderService.getUserOrders(username); 
+        if (webRequest.checkNotModified(versionTracker.ordersEtag(username))) {
+            return null; // 304 Not Modified
+        }
+
+        if (cursor != null || size != null) {
+            try {
+                return ResponseEntity.ok(orderService.getUserOrderPage(currentUser(authentication), cursor, size));
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.BAD_REQUEST); // 400 Bad Request
+            }
+        }
+
+        List<Order> orders = orderService.getUserOrders(currentUser(authentication));
         List<OrderResponse> orderDTOs = orders.stream()
                                              .map(OrderResponse::new) 
                                              .collect(Collectors.toList());
@@ -55,12 +105,11 @@ public class OrderController {
     @GetMapping("/{orderId}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<?> getOrderById(@PathVariable Long orderId) {
-        // Get the authenticated username
+        // Get the authenticated user
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
 
         try {
-            Order order = orderService.getOrderById(username, orderId); 
+            Order order = orderService.getOrderById(currentUser(authentication), orderId);
             return ResponseEntity.ok(new OrderResponse(order)); // 200 OK
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(new MessageResponse(e.getMessage()), HttpStatus.NOT_FOUND); // 404 Not Found
@@ -68,4 +117,9 @@ public class OrderController {
             return new ResponseEntity<>(new MessageResponse("Error retrieving order: " + e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR); // 500 Internal Server Error
         }
     }
-}
\ No newline at end of file
+
+    // The JWT filter's principal already carries the user, so only other principals cost a lookup.
+    private User currentUser(Authentication authentication) {
+        return userDetailsService.loadUserEntity((UserDetails) authentication.getPrincipal());
+    }
+}
@@ -0,0 +1,19 @@
+package com.bookstore.bookstore.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class InsufficientStockException extends RuntimeException {
+
+    private final Long bookId;
+
+    public InsufficientStockException(Long bookId) {
+        super("Not enough stock for book ID: " + bookId);
+        this.bookId = bookId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+}
@@ -4,17 +4,28 @@ import jakarta.persistence.*;
 import lombok.Data; 
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.math.BigDecimal;
 
 @Entity 
-@Table(name = "books") 
+@Table(name = "books", indexes = {
+    @Index(name = "idx_books_price_id", columnList = "price, id"),
+    @Index(name = "idx_books_title_id", columnList = "title, id")
+})
+// Cached by id in the second-level cache; stock changes are bulk updates, which evict the rows they touch.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data 
 @NoArgsConstructor 
 @AllArgsConstructor
-public class Book {
+public class Book implements CatalogItem {
 
-    @Id 
-    @GeneratedValue(strategy = GenerationType.IDENTITY) 
+    // Pooled sequence ids let Hibernate batch inserts; IDENTITY forces one round trip per row.
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -23,7 +34,11 @@ public class Book {
     @Column(nullable = false)
     private String author;
 
+    // Lazy via bytecode enhancement; reads that need it fetch it with an entity graph.
+    @Basic(fetch = FetchType.LAZY)
     @Column(columnDefinition = "TEXT")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private String description;
 
    @Column(nullable = false, precision = 10, scale = 2) 
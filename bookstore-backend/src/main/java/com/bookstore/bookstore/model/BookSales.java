@@ -0,0 +1,9 @@
+package com.bookstore.bookstore.model;
+
+/**
+ * Units of one book sold across all orders.
+ */
+public interface BookSales {
+    Long getBookId();
+    Long getUnits();
+}
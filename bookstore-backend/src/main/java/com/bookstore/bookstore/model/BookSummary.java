@@ -0,0 +1,12 @@
+package com.bookstore.bookstore.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Closed Spring Data projection over the list-view columns, so summary queries never select the
+ * TEXT description. {@link Book} must not implement it: Spring Data returns whole entities for
+ * any return type the entity is assignable to.
+ */
+@JsonPropertyOrder({ "id", "title", "author", "price", "quantity", "imageUrl" })
+public interface BookSummary extends CatalogItem {
+}
@@ -5,15 +5,23 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "cart_items") 
+// One line per (user, book); concurrent adds of the same book converge on it through CartItemRepository.upsertQuantity.
+// The (user_id, last_touched_at) index serves the abandoned-cart sweep.
+@Table(name = "cart_items",
+    uniqueConstraints = @UniqueConstraint(name = "uk_cart_items_user_book", columnNames = {"user_id", "book_id"}),
+    indexes = @Index(name = "idx_cart_items_user_touched", columnList = "user_id, last_touched_at"))
 public class CartItem {
 
+    // Pooled sequence ids let the write-behind cart store batch its inserts.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_items_seq")
+    @SequenceGenerator(name = "cart_items_seq", sequenceName = "cart_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY) 
@@ -26,4 +34,20 @@ public class CartItem {
 
     @Column(nullable = false)
     private Integer quantity; 
+
+    // Last time the line was written; bulk updates that bypass the callbacks below set it themselves.
+    private LocalDateTime lastTouchedAt;
+
+    public CartItem(Long id, User user, Book book, Integer quantity) {
+        this.id = id;
+        this.user = user;
+        this.book = book;
+        this.quantity = quantity;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastTouchedAt = LocalDateTime.now();
+    }
 }
\ No newline at end of file
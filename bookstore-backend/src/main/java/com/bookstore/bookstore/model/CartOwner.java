@@ -0,0 +1,9 @@
+package com.bookstore.bookstore.model;
+
+/**
+ * Owner of a cart, as returned by the abandoned-cart sweep without loading the user.
+ */
+public interface CartOwner {
+    Long getUserId();
+    String getUsername();
+}
@@ -0,0 +1,12 @@
+package com.bookstore.bookstore.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregate view of a user's cart, computed in the database without loading the lines.
+ */
+public interface CartTotals {
+    BigDecimal getTotal();
+    long getLineCount();
+    long getItemCount();
+}
@@ -0,0 +1,16 @@
+package com.bookstore.bookstore.model;
+
+import java.math.BigDecimal;
+
+/**
+ * List-view columns shared by {@link Book} and the {@link BookSummary} projection, so listings
+ * can be paged and rendered the same way whichever of the two a query returned.
+ */
+public interface CatalogItem {
+    Long getId();
+    String getTitle();
+    String getAuthor();
+    BigDecimal getPrice();
+    int getQuantity();
+    String getImageUrl();
+}
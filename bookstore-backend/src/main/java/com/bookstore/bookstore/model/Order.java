@@ -14,7 +14,9 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "orders") 
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_user_date_id", columnList = "user_id, order_date, id")
+})
 public class Order {
 
     @Id
@@ -0,0 +1,23 @@
+package com.bookstore.bookstore.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+// Every token of the user issued before notBefore is revoked ("log out everywhere").
+@Table(name = "token_cutoffs")
+public class TokenCutoff {
+
+    @Id
+    private String username;
+
+    @Column(nullable = false)
+    private LocalDateTime notBefore;
+}
@@ -0,0 +1,12 @@
+package com.bookstore.bookstore.model;
+
+/**
+ * Closed Spring Data projection over the directory columns of a user, so listings select neither
+ * the password hash nor anything that would load the cart.
+ */
+public interface UserSummary {
+    Long getId();
+    String getUsername();
+    String getEmail();
+    String getRole();
+}
@@ -0,0 +1,18 @@
+package com.bookstore.bookstore.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookFacetPageResponse {
+    private List<?> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int total;
+    private Map<String, Map<String, Integer>> facets;
+}
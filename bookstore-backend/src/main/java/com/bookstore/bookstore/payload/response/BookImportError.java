@@ -0,0 +1,13 @@
+package com.bookstore.bookstore.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportError {
+    private long row;
+    private String message;
+}
@@ -0,0 +1,15 @@
+package com.bookstore.bookstore.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResponse {
+    private long imported;
+    private long failed;
+    private List<BookImportError> errors;
+}
@@ -0,0 +1,15 @@
+package com.bookstore.bookstore.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPageResponse {
+    private List<?> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
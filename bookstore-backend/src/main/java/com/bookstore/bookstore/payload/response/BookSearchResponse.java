@@ -0,0 +1,18 @@
+package com.bookstore.bookstore.payload.response;
+
+import com.bookstore.bookstore.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchResponse {
+    private String query;
+    private int page;
+    private int size;
+    private int totalHits;
+    private List<Book> items;
+}
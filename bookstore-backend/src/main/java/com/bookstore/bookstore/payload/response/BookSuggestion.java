@@ -0,0 +1,14 @@
+package com.bookstore.bookstore.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSuggestion {
+    private String text;
+    private String field;
+    private int weight;
+}
@@ -0,0 +1,26 @@
+package com.bookstore.bookstore.payload.response;
+
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.model.UserSummary;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A user as the API shows it: no password hash, and no cart, so serializing it never loads one. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserResponse {
+    private Long id;
+    private String username;
+    private String email;
+    private String role;
+
+    public UserResponse(User user) {
+        this(user.getId(), user.getUsername(), user.getEmail(), user.getRole());
+    }
+
+    public UserResponse(UserSummary user) {
+        this(user.getId(), user.getUsername(), user.getEmail(), user.getRole());
+    }
+}
@@ -1,9 +1,96 @@
 package com.bookstore.bookstore.repository;
 
 import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-@Repository 
+@Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
-}
\ No newline at end of file
+
+    // Book.description is lazy; entity reads that are handed to serializers fetch it in the same query.
+    @Override
+    @EntityGraph(attributePaths = "description")
+    List<Book> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "description")
+    Optional<Book> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "description")
+    List<Book> findAllById(Iterable<Long> ids);
+
+    // Keyset pages: each query seeks past the last (sort value, id) pair of the previous page.
+    @EntityGraph(attributePaths = "description")
+    List<Book> findAllByOrderByIdAsc(Pageable pageable);
+
+    @EntityGraph(attributePaths = "description")
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "description")
+    List<Book> findAllByOrderByPriceAscIdAsc(Pageable pageable);
+
+    @EntityGraph(attributePaths = "description")
+    @Query("SELECT b FROM Book b WHERE b.price > :price OR (b.price = :price AND b.id > :id) ORDER BY b.price ASC, b.id ASC")
+    List<Book> findPriceKeysetPage(@Param("price") BigDecimal price, @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "description")
+    List<Book> findAllByOrderByTitleAscIdAsc(Pageable pageable);
+
+    @EntityGraph(attributePaths = "description")
+    @Query("SELECT b FROM Book b WHERE b.title > :title OR (b.title = :title AND b.id > :id) ORDER BY b.title ASC, b.id ASC")
+    List<Book> findTitleKeysetPage(@Param("title") String title, @Param("id") Long id, Pageable pageable);
+
+    // Summary projections: same keyset pages without ever selecting the description column.
+    List<BookSummary> findSummariesBy();
+
+    List<BookSummary> findSummariesByIdIn(Collection<Long> ids);
+
+    List<BookSummary> findSummariesByOrderByIdAsc(Pageable pageable);
+
+    List<BookSummary> findSummariesByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<BookSummary> findSummariesByOrderByPriceAscIdAsc(Pageable pageable);
+
+    @Query("SELECT b.id AS id, b.title AS title, b.author AS author, b.price AS price, b.quantity AS quantity, b.imageUrl AS imageUrl "
+            + "FROM Book b WHERE b.price > :price OR (b.price = :price AND b.id > :id) ORDER BY b.price ASC, b.id ASC")
+    List<BookSummary> findPriceKeysetSummaries(@Param("price") BigDecimal price, @Param("id") Long id, Pageable pageable);
+
+    List<BookSummary> findSummariesByOrderByTitleAscIdAsc(Pageable pageable);
+
+    @Query("SELECT b.id AS id, b.title AS title, b.author AS author, b.price AS price, b.quantity AS quantity, b.imageUrl AS imageUrl "
+            + "FROM Book b WHERE b.title > :title OR (b.title = :title AND b.id > :id) ORDER BY b.title ASC, b.id ASC")
+    List<BookSummary> findTitleKeysetSummaries(@Param("title") String title, @Param("id") Long id, Pageable pageable);
+
+    // Conditional single-statement stock change: the row lock taken by the UPDATE serializes concurrent
+    // adjustments, and the guard makes an overdraw update nothing instead of going negative.
+    // Native, and synchronized on a space no entity maps to, so Hibernate does not evict the whole
+    // Book cache region on every checkout; callers evict the rows they changed. For the same reason
+    // no query over books may be query-cached: stock changes do not invalidate it.
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "book_stock"))
+    @Query(value = "UPDATE books SET quantity = quantity + :delta WHERE id = :id AND quantity + :delta >= 0", nativeQuery = true)
+    int adjustQuantity(@Param("id") Long id, @Param("delta") int delta);
+
+    // Forward-only cursor for full-catalog exports; callers must consume it inside a transaction and close it.
+    @EntityGraph(attributePaths = "description")
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    Stream<Book> streamAllByOrderByIdAsc();
+}
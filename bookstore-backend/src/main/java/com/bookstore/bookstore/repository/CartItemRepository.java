@@ -1,11 +1,21 @@
 package com.bookstore.bookstore.repository;
 
 import com.bookstore.bookstore.model.CartItem;
+import com.bookstore.bookstore.model.CartOwner;
+import com.bookstore.bookstore.model.CartTotals;
 import com.bookstore.bookstore.model.Book;
 import com.bookstore.bookstore.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,11 +24,62 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
     List<CartItem> findByUser(User user);
 
+    // Cart responses read every line's book, so cart reads fetch the books in the same query.
+    @Query("SELECT c FROM CartItem c JOIN FETCH c.book WHERE c.user = :user ORDER BY c.id")
+    List<CartItem> findByUserWithBook(@Param("user") User user);
+
+    @Query("SELECT c FROM CartItem c JOIN FETCH c.book WHERE c.id = :id")
+    Optional<CartItem> findByIdWithBook(@Param("id") Long id);
+
+    @Query("SELECT COALESCE(SUM(b.price * c.quantity), 0) AS total, COUNT(c) AS lineCount, "
+            + "COALESCE(SUM(c.quantity), 0) AS itemCount FROM CartItem c JOIN c.book b WHERE c.user = :user")
+    CartTotals findTotalsByUser(@Param("user") User user);
+
     Optional<CartItem> findByUserAndBook(User user, Book book);
 
+    @Query("SELECT c FROM CartItem c JOIN FETCH c.book WHERE c.user = :user AND c.book.id = :bookId")
+    Optional<CartItem> findByUserAndBookIdWithBook(@Param("user") User user, @Param("bookId") Long bookId);
+
+    // Adds to the (user, book) line or creates it, in one statement. Two first adds racing on the
+    // same book can still both take the insert branch; the unique key makes the loser fail, and the
+    // caller retries it as an update. The id comes from cart_items_upsert_seq (see schema.sql), not
+    // from cart_items_seq, whose values Hibernate's pooled optimizer hands out in blocks of its own.
+    // Synchronized on cart_items only, since a native write that names no table evicts every
+    // second-level cache region.
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "cart_items"))
+    @Query(value = "MERGE INTO cart_items c "
+            + "USING (VALUES (CAST(:userId AS BIGINT), CAST(:bookId AS BIGINT), CAST(:quantity AS INTEGER))) v(user_id, book_id, quantity) "
+            + "ON c.user_id = v.user_id AND c.book_id = v.book_id "
+            + "WHEN MATCHED THEN UPDATE SET c.quantity = c.quantity + v.quantity, c.last_touched_at = :now "
+            + "WHEN NOT MATCHED THEN INSERT (id, user_id, book_id, quantity, last_touched_at) "
+            + "VALUES (NEXT VALUE FOR cart_items_upsert_seq, v.user_id, v.book_id, v.quantity, :now)", nativeQuery = true)
+    int upsertQuantity(@Param("userId") Long userId, @Param("bookId") Long bookId, @Param("quantity") int quantity,
+                       @Param("now") LocalDateTime now);
+
+    // Abandoned-cart sweep: the next owners after :afterUserId whose every line is older than
+    // :cutoff (a line never touched counts as old), in user id order for keyset iteration.
+    @Query("SELECT u.id AS userId, u.username AS username FROM CartItem c JOIN c.user u WHERE u.id > :afterUserId "
+            + "GROUP BY u.id, u.username "
+            + "HAVING COUNT(c.lastTouchedAt) = 0 OR MAX(c.lastTouchedAt) < :cutoff ORDER BY u.id")
+    List<CartOwner> findExpiredCartOwners(@Param("afterUserId") Long afterUserId, @Param("cutoff") LocalDateTime cutoff,
+                                          Pageable pageable);
+
+    // Re-checks expiry in the same statement, so a cart touched since it was selected survives.
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CartItem c WHERE c.user.id IN :userIds AND NOT EXISTS "
+            + "(SELECT 1 FROM CartItem f WHERE f.user = c.user AND f.lastTouchedAt >= :cutoff)")
+    int deleteExpiredCarts(@Param("userIds") Collection<Long> userIds, @Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("UPDATE CartItem c SET c.quantity = :quantity, c.lastTouchedAt = :now WHERE c.id = :id")
+    int updateQuantity(@Param("id") Long id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+
     @Transactional 
     void deleteByUser(User user);
 
     @Transactional 
     void deleteByUserAndBook(User user, Book book);
-}
\ No newline at end of file
+}
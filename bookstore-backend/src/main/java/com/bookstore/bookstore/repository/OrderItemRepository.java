@@ -1,8 +1,10 @@
 package com.bookstore.bookstore.repository;
 
+import com.bookstore.bookstore.model.BookSales;
 import com.bookstore.bookstore.model.OrderItem;
 import com.bookstore.bookstore.model.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
@@ -10,4 +12,7 @@ import java.util.List;
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
     List<OrderItem> findByOrder(Order order);
-}
\ No newline at end of file
+
+    @Query("SELECT oi.book.id AS bookId, SUM(oi.quantity) AS units FROM OrderItem oi GROUP BY oi.book.id")
+    List<BookSales> findUnitsSoldPerBook();
+}
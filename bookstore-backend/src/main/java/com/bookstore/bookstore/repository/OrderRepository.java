@@ -2,8 +2,14 @@ package com.bookstore.bookstore.repository;
 
 import com.bookstore.bookstore.model.Order;
 import com.bookstore.bookstore.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,5 +17,26 @@ import java.util.Optional;
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
     List<Order> findByUser(User user);
+
+    // Order responses read the user, the items and each item's book, so history reads fetch them in one query.
+    @EntityGraph(attributePaths = { "user", "orderItems", "orderItems.book" })
+    List<Order> findByUserOrderByOrderDateDescIdDesc(User user);
+
+    @EntityGraph(attributePaths = { "user", "orderItems", "orderItems.book" })
     Optional<Order> findByIdAndUser(Long id, User user);
-}
\ No newline at end of file
+
+    @EntityGraph(attributePaths = { "user", "orderItems", "orderItems.book" })
+    @Query("SELECT o FROM Order o WHERE o.id IN :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Keyset pages of history, newest first. Only ids are selected so the LIMIT runs in SQL;
+    // a fetch join on the items collection would force Hibernate to paginate in memory.
+    @Query("SELECT o.id FROM Order o WHERE o.user = :user ORDER BY o.orderDate DESC, o.id DESC")
+    List<Long> findRecentIdsByUser(@Param("user") User user, Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.user = :user "
+            + "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) "
+            + "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Long> findIdsByUserBefore(@Param("user") User user, @Param("orderDate") LocalDateTime orderDate,
+                                   @Param("id") Long id, Pageable pageable);
+}
@@ -0,0 +1,21 @@
+package com.bookstore.bookstore.repository;
+
+import com.bookstore.bookstore.model.TokenCutoff;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface TokenCutoffRepository extends JpaRepository<TokenCutoff, String> {
+
+    // A cutoff older than the longest token lifetime no longer revokes anything.
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TokenCutoff c WHERE c.notBefore < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
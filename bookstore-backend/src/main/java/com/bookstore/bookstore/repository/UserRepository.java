@@ -1,13 +1,32 @@
 package com.bookstore.bookstore.repository;
 
 import com.bookstore.bookstore.model.User; 
+import com.bookstore.bookstore.model.UserSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional; 
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
-    
+
+    // Served from the query cache, which holds the user's id and resolves it from the entity cache;
+    // any write to the users table invalidates it.
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<User> findByUsername(String username);
+
     Optional<User> findByEmail(String email);
-}
\ No newline at end of file
+
+    // Directory pages: a prefix LIKE plus a keyset bound on the same column, both served by the
+    // unique indexes on username and email. Matching is case-sensitive so the index stays usable.
+    List<UserSummary> findByUsernameStartingWithOrderByUsernameAsc(String prefix, Pageable pageable);
+
+    List<UserSummary> findByUsernameStartingWithAndUsernameGreaterThanOrderByUsernameAsc(String prefix, String after, Pageable pageable);
+
+    List<UserSummary> findByEmailStartingWithOrderByEmailAsc(String prefix, Pageable pageable);
+
+    List<UserSummary> findByEmailStartingWithAndEmailGreaterThanOrderByEmailAsc(String prefix, String after, Pageable pageable);
+}
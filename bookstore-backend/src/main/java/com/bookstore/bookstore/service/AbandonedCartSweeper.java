@@ -0,0 +1,131 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.CartOwner;
+import com.bookstore.bookstore.repository.CartItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes carts whose every line is older than {@code cart.sweeper.ttl-days}.
+ * Each run walks the cart owners in user id order, {@code cart.sweeper.batch-size} carts at a
+ * time, and deletes each batch in its own short transaction. So a run never holds locks on more
+ * than one batch, and it never rescans carts it has already passed. A run stops after
+ * {@code cart.sweeper.max-batches} batches; the next run starts over from the lowest user id.
+ * Carts held in memory by the write-behind store are skipped, since their rows may be stale.
+ */
+@Component
+public class AbandonedCartSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedCartSweeper.class);
+
+    private final CartItemRepository cartItemRepository;
+    private final WriteBehindCartStore cartStore;
+    private final ResourceVersionTracker versionTracker;
+    private final boolean enabled;
+    private final long ttlDays;
+    private final int batchSize;
+    private final int maxBatches;
+
+    private long runs;
+    private long totalRows;
+    private long lastRunStartedAt;
+    private long lastRunMillis;
+    private long lastRunBatches;
+    private long lastRunCarts;
+    private long lastRunRows;
+
+    public AbandonedCartSweeper(CartItemRepository cartItemRepository, WriteBehindCartStore cartStore,
+                                ResourceVersionTracker versionTracker,
+                                @Value("${cart.sweeper.enabled:true}") boolean enabled,
+                                @Value("${cart.sweeper.ttl-days:30}") long ttlDays,
+                                @Value("${cart.sweeper.batch-size:500}") int batchSize,
+                                @Value("${cart.sweeper.max-batches:1000}") int maxBatches) {
+        this.cartItemRepository = cartItemRepository;
+        this.cartStore = cartStore;
+        this.versionTracker = versionTracker;
+        this.enabled = enabled;
+        this.ttlDays = ttlDays;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatches = Math.max(1, maxBatches);
+    }
+
+    @Scheduled(initialDelayString = "${cart.sweeper.initial-delay-ms:60000}",
+               fixedDelayString = "${cart.sweeper.interval-ms:3600000}")
+    public void scheduledSweep() {
+        if (enabled) {
+            sweep();
+        }
+    }
+
+    /**
+     * Runs one sweep.
+     * @return The number of cart lines deleted.
+     */
+    public synchronized long sweep() {
+        long start = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(ttlDays);
+        long afterUserId = 0;
+        long batches = 0;
+        long carts = 0;
+        long rows = 0;
+        while (batches < maxBatches) {
+            List<CartOwner> owners = cartItemRepository.findExpiredCartOwners(afterUserId, cutoff, PageRequest.of(0, batchSize));
+            if (owners.isEmpty()) {
+                break;
+            }
+            afterUserId = owners.get(owners.size() - 1).getUserId();
+            List<CartOwner> expired = owners.stream()
+                    .filter(owner -> !cartStore.isCached(owner.getUserId()))
+                    .collect(Collectors.toList());
+            if (!expired.isEmpty()) {
+                rows += cartItemRepository.deleteExpiredCarts(
+                        expired.stream().map(CartOwner::getUserId).collect(Collectors.toList()), cutoff);
+                carts += expired.size();
+                expired.forEach(owner -> versionTracker.bumpCart(owner.getUsername()));
+            }
+            batches++;
+            if (owners.size() < batchSize) {
+                break;
+            }
+        }
+
+        long millis = System.currentTimeMillis() - start;
+        runs++;
+        totalRows += rows;
+        lastRunStartedAt = start;
+        lastRunMillis = millis;
+        lastRunBatches = batches;
+        lastRunCarts = carts;
+        lastRunRows = rows;
+        if (rows > 0) {
+            logger.info("Swept {} abandoned carts ({} lines) older than {} days in {} batches, {} ms",
+                    carts, rows, ttlDays, batches, millis);
+        }
+        return rows;
+    }
+
+    /** Figures of the last run and running totals, for the admin stats endpoint. */
+    public synchronized Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("runs", runs);
+        stats.put("totalRows", totalRows);
+        stats.put("lastRunStartedAt", lastRunStartedAt);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("lastRunBatches", lastRunBatches);
+        stats.put("lastRunCarts", lastRunCarts);
+        stats.put("lastRunRows", lastRunRows);
+        stats.put("ttlDays", ttlDays);
+        stats.put("batchSize", (long) batchSize);
+        return stats;
+    }
+}
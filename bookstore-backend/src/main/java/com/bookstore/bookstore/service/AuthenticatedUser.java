@@ -0,0 +1,51 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.User;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * The principal {@link CustomUserDetailsService} hands out. Besides the usual {@link UserDetails}
+ * fields it carries the user's id, email and role, so controllers can pass the user to services
+ * without looking the entity up again. Instances are shared through {@link PrincipalCache}, so they
+ * are immutable.
+ */
+@Getter
+public class AuthenticatedUser implements UserDetails {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String username;
+    private final String email;
+    private final String password;
+    private final String role;
+
+    public AuthenticatedUser(User user) {
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.email = user.getEmail();
+        this.password = user.getPassword();
+        this.role = user.getRole();
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.singletonList(new SimpleGrantedAuthority(role));
+    }
+
+    /**
+     * A detached {@link User} holding this principal's columns. It is enough for queries and foreign
+     * keys, but its {@code cartItems} collection is empty rather than loaded.
+     */
+    public User toUser() {
+        User user = new User(username, email, password, role);
+        user.setId(id);
+        return user;
+    }
+}
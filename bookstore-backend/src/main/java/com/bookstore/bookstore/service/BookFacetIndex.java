@@ -0,0 +1,331 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.config.ReadWriteRoutingDataSource;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.model.CatalogItem;
+import com.bookstore.bookstore.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-facet bitsets (price bucket, author, in stock) so filtered listings and facet counts are
+ * computed in memory instead of with GROUP BY queries.
+ * Each indexed book gets a dense bit position (slot), reused after the book is removed, so the
+ * bitsets stay compact however sparse or large the book ids are.
+ */
+@Component
+public class BookFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookFacetIndex.class);
+
+    public static final String[] PRICE_BUCKETS = { "0-10", "10-25", "25-50", "50-100", "100+" };
+    private static final BigDecimal[] PRICE_BOUNDS = {
+            BigDecimal.valueOf(10), BigDecimal.valueOf(25), BigDecimal.valueOf(50), BigDecimal.valueOf(100) };
+    private static final int REBUILD_BATCH_SIZE = 500;
+    private static final int MAX_AUTHOR_FACETS = 20;
+
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final BitSet allBooks = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final BitSet[] priceBuckets = new BitSet[PRICE_BUCKETS.length];
+    private final Map<String, BitSet> authors = new HashMap<>();
+    // slot -> book and facet values as indexed, so updates can clear the old bits; null for free slots
+    private final List<IndexedFacets> slots = new ArrayList<>();
+    private final Map<Long, Integer> slotsByBookId = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    private static final class IndexedFacets {
+        final long bookId;
+        final String author;
+        final int priceBucket;
+
+        IndexedFacets(long bookId, String author, int priceBucket) {
+            this.bookId = bookId;
+            this.author = author;
+            this.priceBucket = priceBucket;
+        }
+    }
+
+    public BookFacetIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+        for (int i = 0; i < priceBuckets.length; i++) {
+            priceBuckets[i] = new BitSet();
+        }
+    }
+
+    public static class Result {
+        private final List<Long> ids;
+        private final int total;
+        private final boolean hasMore;
+        private final Map<String, Map<String, Integer>> facets;
+
+        Result(List<Long> ids, int total, boolean hasMore, Map<String, Map<String, Integer>> facets) {
+            this.ids = ids;
+            this.total = total;
+            this.hasMore = hasMore;
+            this.facets = facets;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public boolean isHasMore() {
+            return hasMore;
+        }
+
+        public Map<String, Map<String, Integer>> getFacets() {
+            return facets;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            allBooks.clear();
+            inStock.clear();
+            for (BitSet bucket : priceBuckets) {
+                bucket.clear();
+            }
+            authors.clear();
+            slots.clear();
+            slotsByBookId.clear();
+            freeSlots.clear();
+            List<BookSummary> batch = ReadWriteRoutingDataSource.readFromPrimary(
+                    () -> bookRepository.findSummariesByOrderByIdAsc(PageRequest.of(0, REBUILD_BATCH_SIZE)));
+            while (!batch.isEmpty()) {
+                batch.forEach(this::addBook);
+                Long lastId = batch.get(batch.size() - 1).getId();
+                batch = ReadWriteRoutingDataSource.readFromPrimary(
+                        () -> bookRepository.findSummariesByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Built facet index over {} books and {} authors in {} ms",
+                allBooks.cardinality(), authors.size(), System.currentTimeMillis() - start);
+    }
+
+    public void index(CatalogItem book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeBook(book.getId());
+            addBook(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeBook(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Filters the catalog and returns the page of ids after {@code afterId}, plus facet counts.
+     * Values within a facet are OR-ed and facets are AND-ed. Each facet's counts are computed
+     * against the other facets' filters, so a selected value does not hide its siblings.
+     * @param authorFilter Authors to match, or empty for any.
+     * @param priceFilter Price bucket labels from {@link #PRICE_BUCKETS}, or empty for any.
+     * @param inStockFilter true/false to require or exclude stock, null for any.
+     * @throws IllegalArgumentException if a price bucket label is unknown.
+     */
+    public Result query(Collection<String> authorFilter, Collection<String> priceFilter, Boolean inStockFilter,
+                        long afterId, int size) {
+        lock.readLock().lock();
+        try {
+            BitSet authorMatch = authorFilter.isEmpty() ? null : union(authorFilter);
+            BitSet priceMatch = priceFilter.isEmpty() ? null : priceUnion(priceFilter);
+            BitSet stockMatch = inStockFilter == null ? null : stockMatch(inStockFilter);
+
+            BitSet matches = intersect(authorMatch, priceMatch, stockMatch);
+            // Slots are not in id order, so keep the size + 1 smallest ids after afterId, largest on top.
+            PriorityQueue<Long> page = new PriorityQueue<>(size + 2, Comparator.reverseOrder());
+            for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+                long bookId = slots.get(slot).bookId;
+                if (bookId > afterId) {
+                    page.add(bookId);
+                    if (page.size() > size + 1) {
+                        page.poll();
+                    }
+                }
+            }
+            boolean hasMore = page.size() > size;
+            if (hasMore) {
+                page.poll();
+            }
+            List<Long> ids = new ArrayList<>(page);
+            Collections.sort(ids);
+
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            BitSet withoutPrice = intersect(authorMatch, null, stockMatch);
+            Map<String, Integer> priceCounts = new LinkedHashMap<>();
+            for (int i = 0; i < PRICE_BUCKETS.length; i++) {
+                priceCounts.put(PRICE_BUCKETS[i], countAnd(withoutPrice, priceBuckets[i]));
+            }
+            facets.put("price", priceCounts);
+
+            BitSet withoutStock = intersect(authorMatch, priceMatch, null);
+            Map<String, Integer> stockCounts = new LinkedHashMap<>();
+            int stocked = countAnd(withoutStock, inStock);
+            stockCounts.put("true", stocked);
+            stockCounts.put("false", withoutStock.cardinality() - stocked);
+            facets.put("inStock", stockCounts);
+
+            facets.put("author", authorCounts(intersect(null, priceMatch, stockMatch)));
+            return new Result(ids, matches.cardinality(), hasMore, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static int bucketOf(BigDecimal price) {
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            if (price.compareTo(PRICE_BOUNDS[i]) < 0) {
+                return i;
+            }
+        }
+        return PRICE_BOUNDS.length;
+    }
+
+    // Callers must hold the read lock.
+    private BitSet union(Collection<String> authorFilter) {
+        BitSet result = new BitSet();
+        for (String author : authorFilter) {
+            BitSet bits = authors.get(author);
+            if (bits != null) {
+                result.or(bits);
+            }
+        }
+        return result;
+    }
+
+    // Callers must hold the read lock.
+    private BitSet priceUnion(Collection<String> priceFilter) {
+        BitSet result = new BitSet();
+        for (String label : priceFilter) {
+            int bucket = List.of(PRICE_BUCKETS).indexOf(label);
+            if (bucket < 0) {
+                throw new IllegalArgumentException("Unknown price bucket: " + label);
+            }
+            result.or(priceBuckets[bucket]);
+        }
+        return result;
+    }
+
+    // Callers must hold the read lock.
+    private BitSet stockMatch(boolean wanted) {
+        BitSet result = (BitSet) allBooks.clone();
+        if (wanted) {
+            result.and(inStock);
+        } else {
+            result.andNot(inStock);
+        }
+        return result;
+    }
+
+    // Callers must hold the read lock. Null filters are treated as "match everything".
+    private BitSet intersect(BitSet first, BitSet second, BitSet third) {
+        BitSet result = (BitSet) allBooks.clone();
+        for (BitSet filter : new BitSet[] { first, second, third }) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static int countAnd(BitSet a, BitSet b) {
+        BitSet copy = (BitSet) a.clone();
+        copy.and(b);
+        return copy.cardinality();
+    }
+
+    // Tallies authors by walking the matching slots, which is cheaper than intersecting every author bitset.
+    private Map<String, Integer> authorCounts(BitSet matches) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            counts.merge(slots.get(slot).author, 1, Integer::sum);
+        }
+        Map<String, Integer> top = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(MAX_AUTHOR_FACETS)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    // Callers must hold the write lock.
+    private void addBook(CatalogItem book) {
+        String author = book.getAuthor() == null ? "" : book.getAuthor();
+        int bucket = bucketOf(book.getPrice() == null ? BigDecimal.ZERO : book.getPrice());
+        IndexedFacets facets = new IndexedFacets(book.getId(), author, bucket);
+        Integer slot = freeSlots.poll();
+        if (slot == null) {
+            slot = slots.size();
+            slots.add(facets);
+        } else {
+            slots.set(slot, facets);
+        }
+        slotsByBookId.put(book.getId(), slot);
+        allBooks.set(slot);
+        inStock.set(slot, book.getQuantity() > 0);
+        priceBuckets[bucket].set(slot);
+        authors.computeIfAbsent(author, a -> new BitSet()).set(slot);
+    }
+
+    // Callers must hold the write lock.
+    private void removeBook(Long bookId) {
+        Integer slot = slotsByBookId.remove(bookId);
+        if (slot == null) {
+            return;
+        }
+        IndexedFacets facets = slots.set(slot, null);
+        freeSlots.push(slot);
+        allBooks.clear(slot);
+        inStock.clear(slot);
+        priceBuckets[facets.priceBucket].clear(slot);
+        BitSet authorBits = authors.get(facets.author);
+        if (authorBits != null) {
+            authorBits.clear(slot);
+            if (authorBits.isEmpty()) {
+                authors.remove(facets.author);
+            }
+        }
+    }
+}
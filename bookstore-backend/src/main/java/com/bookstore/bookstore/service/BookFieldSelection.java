@@ -0,0 +1,96 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.CatalogItem;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parsed {@code fields=} selector for catalog list endpoints.
+ * Accepts "summary", "full" or a comma-separated subset of {@link #ALL_FIELDS}.
+ * The description column is only read when it is explicitly selected (or "full" is requested).
+ */
+public final class BookFieldSelection {
+
+    public static final List<String> SUMMARY_FIELDS = List.of("id", "title", "author", "price", "quantity", "imageUrl");
+    public static final List<String> ALL_FIELDS = List.of("id", "title", "author", "description", "price", "quantity", "imageUrl");
+
+    private final Set<String> fields;
+
+    private BookFieldSelection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @param value The raw {@code fields} parameter, or null.
+     * @param defaultFull Whether an absent selector means every field (legacy endpoints) or the summary.
+     * @throws IllegalArgumentException on unknown field names.
+     */
+    public static BookFieldSelection parse(String value, boolean defaultFull) {
+        if (value == null || value.isBlank()) {
+            return new BookFieldSelection(new LinkedHashSet<>(defaultFull ? ALL_FIELDS : SUMMARY_FIELDS));
+        }
+        if ("full".equalsIgnoreCase(value.trim())) {
+            return new BookFieldSelection(new LinkedHashSet<>(ALL_FIELDS));
+        }
+        if ("summary".equalsIgnoreCase(value.trim())) {
+            return new BookFieldSelection(new LinkedHashSet<>(SUMMARY_FIELDS));
+        }
+        Set<String> requested = Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+        for (String field : requested) {
+            if (!ALL_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+        }
+        // Keep a canonical field order so equivalent selectors produce identical output.
+        Set<String> ordered = new LinkedHashSet<>();
+        ALL_FIELDS.stream().filter(requested::contains).forEach(ordered::add);
+        return new BookFieldSelection(ordered);
+    }
+
+    public boolean needsDescription() {
+        return fields.contains("description");
+    }
+
+    /** Canonical form, for use in cache keys. */
+    public String key() {
+        return String.join(",", fields);
+    }
+
+    /**
+     * Returns rows unchanged when they already carry exactly the selected fields,
+     * otherwise maps each row to an ordered map holding only the selected fields.
+     */
+    public List<?> apply(List<? extends CatalogItem> rows) {
+        boolean exact = needsDescription() ? fields.size() == ALL_FIELDS.size() : fields.size() == SUMMARY_FIELDS.size();
+        if (exact) {
+            return rows;
+        }
+        return rows.stream().map(this::select).collect(Collectors.toList());
+    }
+
+    private Map<String, Object> select(CatalogItem row) {
+        Map<String, Object> selected = new LinkedHashMap<>();
+        for (String field : fields) {
+            switch (field) {
+                case "id": selected.put(field, row.getId()); break;
+                case "title": selected.put(field, row.getTitle()); break;
+                case "author": selected.put(field, row.getAuthor()); break;
+                case "description": selected.put(field, ((Book) row).getDescription()); break;
+                case "price": selected.put(field, row.getPrice()); break;
+                case "quantity": selected.put(field, row.getQuantity()); break;
+                default: selected.put(field, row.getImageUrl());
+            }
+        }
+        return selected;
+    }
+}
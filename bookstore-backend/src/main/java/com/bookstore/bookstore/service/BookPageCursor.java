@@ -0,0 +1,81 @@
+package com.bookstore.bookstore.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset-paginated catalog listings.
+ * Encodes the sort key plus the sort value and id of the last row on the previous page,
+ * so the next page can be fetched with an indexed range predicate instead of an OFFSET.
+ */
+public final class BookPageCursor {
+
+    public enum SortKey {
+        ID, PRICE, TITLE;
+
+        public static SortKey from(String value) {
+            if (value == null || value.isBlank()) {
+                return ID;
+            }
+            try {
+                return SortKey.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported sort key: " + value);
+            }
+        }
+    }
+
+    private final SortKey sortKey;
+    private final Long lastId;
+    private final String lastValue;
+
+    public BookPageCursor(SortKey sortKey, Long lastId, String lastValue) {
+        this.sortKey = sortKey;
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    public SortKey getSortKey() {
+        return sortKey;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public BigDecimal getLastPrice() {
+        return new BigDecimal(lastValue);
+    }
+
+    public String getLastTitle() {
+        return lastValue;
+    }
+
+    public String encode() {
+        String raw = sortKey.name() + ":" + lastId + ":" + (lastValue == null ? "" : lastValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     * @throws IllegalArgumentException if the token is malformed or was issued for a different sort key.
+     */
+    public static BookPageCursor decode(String token, SortKey expectedSortKey) {
+        BookPageCursor cursor;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            cursor = new BookPageCursor(SortKey.valueOf(parts[0]), Long.parseLong(parts[1]), parts[2]);
+            if (cursor.getSortKey() == SortKey.PRICE) {
+                cursor.getLastPrice();
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid page cursor.");
+        }
+        if (cursor.getSortKey() != expectedSortKey) {
+            throw new IllegalArgumentException("Cursor was issued for sort key " + cursor.getSortKey() + ", not " + expectedSortKey);
+        }
+        return cursor;
+    }
+}
@@ -0,0 +1,244 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.config.ReadWriteRoutingDataSource;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over book title, author and description, ranked with BM25.
+ * Built from the database once the application is ready and kept current by {@link BookService}.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "the", "to", "with"));
+
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (book id -> field-weighted term frequency)
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    // book id -> distinct terms, so a document can be removed without re-tokenizing it
+    private final Map<Long, String[]> documentTerms = new HashMap<>();
+    // book id -> field-weighted document length
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+    private long totalLength;
+
+    public BookSearchIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    public static class Hit {
+        private final Long bookId;
+        private final double score;
+
+        Hit(Long bookId, double score) {
+            this.bookId = bookId;
+            this.score = score;
+        }
+
+        public Long getBookId() {
+            return bookId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    public static class Result {
+        private final List<Hit> hits;
+        private final int totalHits;
+
+        Result(List<Hit> hits, int totalHits) {
+            this.hits = hits;
+            this.totalHits = totalHits;
+        }
+
+        public List<Hit> getHits() {
+            return hits;
+        }
+
+        public int getTotalHits() {
+            return totalHits;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentTerms.clear();
+            documentLengths.clear();
+            totalLength = 0;
+            List<Book> batch = ReadWriteRoutingDataSource.readFromPrimary(
+                    () -> bookRepository.findAllByOrderByIdAsc(PageRequest.of(0, REBUILD_BATCH_SIZE)));
+            while (!batch.isEmpty()) {
+                batch.forEach(this::addDocument);
+                Long lastId = batch.get(batch.size() - 1).getId();
+                batch = ReadWriteRoutingDataSource.readFromPrimary(
+                        () -> bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Built search index over {} books and {} terms in {} ms",
+                documentLengths.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(book.getId());
+            addDocument(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks all books matching at least one query term and returns the requested page.
+     * @param query Free text; tokenized the same way as indexed fields.
+     * @param page Zero-based page number; pages past the last hit are empty.
+     * @param size Page size.
+     */
+    public Result search(String query, int page, int size) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new Result(List.of(), 0);
+        }
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int documentCount = documentLengths.size();
+            double averageLength = documentCount == 0 ? 0 : (double) totalLength / documentCount;
+            for (String term : new HashSet<>(terms)) {
+                Map<Long, Integer> termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+                for (Map.Entry<Long, Integer> posting : termPostings.entrySet()) {
+                    int tf = posting.getValue();
+                    double lengthNorm = 1 - B + B * documentLengths.get(posting.getKey()) / averageLength;
+                    double termScore = idf * tf * (K1 + 1) / (tf + K1 * lengthNorm);
+                    scores.merge(posting.getKey(), termScore, Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Hit> ranked = new ArrayList<>(scores.size());
+        scores.forEach((id, score) -> ranked.add(new Hit(id, score)));
+        ranked.sort((a, b) -> a.score != b.score ? Double.compare(b.score, a.score) : Long.compare(a.bookId, b.bookId));
+        // Long arithmetic: a huge page number must land past the end, not wrap around to a valid offset.
+        int from = (int) Math.min((long) Math.max(0, page) * size, ranked.size());
+        int to = (int) Math.min((long) from + size, ranked.size());
+        return new Result(new ArrayList<>(ranked.subList(from, to)), ranked.size());
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentLengths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Callers must hold the write lock.
+    private void addDocument(Book book) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = addField(frequencies, book.getTitle(), TITLE_WEIGHT)
+                + addField(frequencies, book.getAuthor(), AUTHOR_WEIGHT)
+                + addField(frequencies, book.getDescription(), DESCRIPTION_WEIGHT);
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), t -> new HashMap<>()).put(book.getId(), entry.getValue());
+        }
+        documentTerms.put(book.getId(), frequencies.keySet().toArray(new String[0]));
+        documentLengths.put(book.getId(), length);
+        totalLength += length;
+    }
+
+    private int addField(Map<String, Integer> frequencies, String text, int weight) {
+        List<String> tokens = tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(token, weight, Integer::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    // Callers must hold the write lock.
+    private void removeDocument(Long bookId) {
+        String[] terms = documentTerms.remove(bookId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(bookId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= documentLengths.remove(bookId);
+    }
+}
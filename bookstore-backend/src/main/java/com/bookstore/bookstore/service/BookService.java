@@ -1,10 +1,28 @@
 package com.bookstore.bookstore.service;
 
+import com.bookstore.bookstore.exception.InsufficientStockException;
+import com.bookstore.bookstore.exception.ResourceNotFoundException;
 import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.model.CatalogItem;
+import com.bookstore.bookstore.payload.response.BookFacetPageResponse;
+import com.bookstore.bookstore.payload.response.BookPageResponse;
+import com.bookstore.bookstore.payload.response.BookSearchResponse;
+import com.bookstore.bookstore.payload.response.BookSuggestion;
 import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.BookPageCursor.SortKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import com.bookstore.bookstore.api.GoogleBooksApiService; 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,14 +35,149 @@ public class BookService {
     private static final Logger logger = LoggerFactory.getLogger(BookService.class); 
     private final BookRepository bookRepository;
     private final GoogleBooksApiService googleBooksApiService; 
+    private final BookSearchIndex searchIndex;
+    private final BookSuggestIndex suggestIndex;
+    private final BookFacetIndex facetIndex;
+    private final CatalogResponseCache responseCache;
+    private final ResourceVersionTracker versionTracker;
+    private final StockService stockService;
 
-    public BookService(BookRepository bookRepository, GoogleBooksApiService googleBooksApiService) { 
+    @Value("${catalog.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${catalog.page.max-size:100}")
+    private int maxPageSize;
+
+    public BookService(BookRepository bookRepository, GoogleBooksApiService googleBooksApiService,
+                       BookSearchIndex searchIndex, BookSuggestIndex suggestIndex, BookFacetIndex facetIndex,
+                       CatalogResponseCache responseCache, ResourceVersionTracker versionTracker,
+                       StockService stockService) { 
         this.bookRepository = bookRepository;
         this.googleBooksApiService = googleBooksApiService; 
+        this.searchIndex = searchIndex;
+        this.suggestIndex = suggestIndex;
+        this.facetIndex = facetIndex;
+        this.responseCache = responseCache;
+        this.versionTracker = versionTracker;
+        this.stockService = stockService;
+    }
+
+    /**
+     * Whole catalog restricted to the selected fields; the description column is only read when selected.
+     */
+    @Transactional(readOnly = true)
+    public List<?> getAllBooks(BookFieldSelection fields) {
+        return fields.apply(fields.needsDescription() ? bookRepository.findAll() : bookRepository.findSummariesBy());
+    }
+
+    /**
+     * Returns one keyset page of the catalog ordered by the given sort key (ties broken by id).
+     * @param sort "id" (default), "price" or "title".
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param size Requested page size; clamped to [1, catalog.page.max-size].
+     * @param fields Fields to return; pages without description are served from a summary projection.
+     * @throws IllegalArgumentException if the sort key or cursor is invalid.
+     */
+    @Transactional(readOnly = true)
+    public BookPageResponse getBookPage(String sort, String cursor, Integer size, BookFieldSelection fields) {
+        SortKey sortKey = SortKey.from(sort);
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        BookPageCursor after = (cursor == null || cursor.isBlank()) ? null : BookPageCursor.decode(cursor, sortKey);
+        // Fetch one extra row to learn whether another page exists without a COUNT query.
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<? extends CatalogItem> rows = fields.needsDescription()
+                ? fetchBookPage(sortKey, after, limit)
+                : fetchSummaryPage(sortKey, after, limit);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<? extends CatalogItem> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            CatalogItem last = items.get(items.size() - 1);
+            String lastValue = sortKey == SortKey.PRICE ? last.getPrice().toPlainString()
+                    : sortKey == SortKey.TITLE ? last.getTitle() : "";
+            nextCursor = new BookPageCursor(sortKey, last.getId(), lastValue).encode();
+        }
+        return new BookPageResponse(fields.apply(items), nextCursor, hasMore);
+    }
+
+    private List<Book> fetchBookPage(SortKey sortKey, BookPageCursor after, Pageable limit) {
+        switch (sortKey) {
+            case PRICE:
+                return after == null
+                        ? bookRepository.findAllByOrderByPriceAscIdAsc(limit)
+                        : bookRepository.findPriceKeysetPage(after.getLastPrice(), after.getLastId(), limit);
+            case TITLE:
+                return after == null
+                        ? bookRepository.findAllByOrderByTitleAscIdAsc(limit)
+                        : bookRepository.findTitleKeysetPage(after.getLastTitle(), after.getLastId(), limit);
+            default:
+                return after == null
+                        ? bookRepository.findAllByOrderByIdAsc(limit)
+                        : bookRepository.findByIdGreaterThanOrderByIdAsc(after.getLastId(), limit);
+        }
+    }
+
+    private List<BookSummary> fetchSummaryPage(SortKey sortKey, BookPageCursor after, Pageable limit) {
+        switch (sortKey) {
+            case PRICE:
+                return after == null
+                        ? bookRepository.findSummariesByOrderByPriceAscIdAsc(limit)
+                        : bookRepository.findPriceKeysetSummaries(after.getLastPrice(), after.getLastId(), limit);
+            case TITLE:
+                return after == null
+                        ? bookRepository.findSummariesByOrderByTitleAscIdAsc(limit)
+                        : bookRepository.findTitleKeysetSummaries(after.getLastTitle(), after.getLastId(), limit);
+            default:
+                return after == null
+                        ? bookRepository.findSummariesByOrderByIdAsc(limit)
+                        : bookRepository.findSummariesByIdGreaterThanOrderByIdAsc(after.getLastId(), limit);
+        }
+    }
+
+    /**
+     * Full-text search over title, author and description, ranked by the in-memory index.
+     * Only the books on the requested page are loaded from the database.
+     */
+    @Transactional(readOnly = true)
+    public BookSearchResponse searchBooks(String query, int page, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        int pageNumber = Math.max(0, page);
+        BookSearchIndex.Result result = searchIndex.search(query, pageNumber, pageSize);
+        List<Long> ids = result.getHits().stream().map(BookSearchIndex.Hit::getBookId).collect(Collectors.toList());
+        Map<Long, Book> booksById = bookRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Book> items = ids.stream().map(booksById::get).filter(Objects::nonNull).collect(Collectors.toList());
+        return new BookSearchResponse(query, pageNumber, pageSize, result.getTotalHits(), items);
     }
 
-    public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+    public List<BookSuggestion> suggest(String prefix, Integer limit) {
+        int max = limit == null ? 10 : Math.max(1, Math.min(limit, 25));
+        return suggestIndex.suggest(prefix, max);
+    }
+
+    /**
+     * Filtered catalog page (ordered by id) with counts for the author, price and inStock facets.
+     * Filtering and counting run against the in-memory facet index; only the page's books are loaded.
+     * @throws IllegalArgumentException if the cursor or a price bucket is invalid.
+     */
+    @Transactional(readOnly = true)
+    public BookFacetPageResponse getFacetedPage(Collection<String> authors, Collection<String> priceBuckets,
+                                                Boolean inStock, String cursor, Integer size,
+                                                BookFieldSelection fields) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        long afterId = (cursor == null || cursor.isBlank()) ? 0 : BookPageCursor.decode(cursor, SortKey.ID).getLastId();
+        BookFacetIndex.Result result = facetIndex.query(authors, priceBuckets, inStock, afterId, pageSize);
+        List<? extends CatalogItem> items = fields.needsDescription()
+                ? bookRepository.findAllById(result.getIds())
+                : bookRepository.findSummariesByIdIn(result.getIds());
+        items.sort(Comparator.comparing(CatalogItem::getId));
+        String nextCursor = null;
+        if (result.isHasMore() && !items.isEmpty()) {
+            nextCursor = new BookPageCursor(SortKey.ID, items.get(items.size() - 1).getId(), "").encode();
+        }
+        return new BookFacetPageResponse(fields.apply(items), nextCursor, nextCursor != null, result.getTotal(), result.getFacets());
     }
 
     public Optional<Book> getBookById(Long id) {
@@ -32,7 +185,21 @@ public class BookService {
     }
 
     public Book addBook(Book book) {
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        onBookSaved(savedBook);
+        return savedBook;
+    }
+
+    /**
+     * Inserts one import batch in a single transaction. Pooled sequence ids and
+     * hibernate.jdbc.batch_size let the rows go out as JDBC batches; the in-memory indexes and the
+     * response cache are only touched once the batch commits, so a failing batch leaves them unchanged.
+     */
+    @Transactional
+    public List<Book> addBooks(List<Book> books) {
+        List<Book> savedBooks = bookRepository.saveAllAndFlush(books);
+        onBooksSaved(savedBooks);
+        return savedBooks;
     }
 
     public Book updateBook(Long id, Book updatedBook) {
@@ -45,7 +212,9 @@ public class BookService {
             existingBook.setPrice(updatedBook.getPrice());
             existingBook.setQuantity(updatedBook.getQuantity());
             existingBook.setImageUrl(updatedBook.getImageUrl());
-            return bookRepository.save(existingBook);
+            Book savedBook = bookRepository.save(existingBook);
+            onBookSaved(savedBook);
+            return savedBook;
         } else {
             throw new RuntimeException("Book with ID " + id + " not found.");
         }
@@ -53,27 +222,26 @@ public class BookService {
 
     public void deleteBook(Long id) {
         bookRepository.deleteById(id);
+        onBookDeleted(id);
     }
 
+    /**
+     * Adds {@code quantityChange} to a book's stock through {@link StockService}, so concurrent
+     * changes are never lost.
+     * @throws ResourceNotFoundException if the book does not exist.
+     * @throws InsufficientStockException if the change would make the quantity negative.
+     */
     public Book updateBookQuantity(Long id, int quantityChange) {
-        Optional<Book> bookOptional = bookRepository.findById(id);
-        if (bookOptional.isPresent()) {
-            Book book = bookOptional.get();
-            int newQuantity = book.getQuantity() + quantityChange;
-            if (newQuantity < 0) {
-                throw new IllegalArgumentException("Not enough stock for book ID: " + id);
-            }
-            book.setQuantity(newQuantity);
-            return bookRepository.save(book);
-        } else {
-            throw new RuntimeException("Book with ID " + id + " not found.");
-        }
+        stockService.adjust(id, quantityChange);
+        return bookRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Book with ID " + id + " not found."));
     }
 
     @Transactional
     public void populateBooks(String query, int maxResults) {
         logger.info("Calling Google Books API to populate books with query: '{}', maxResults: {}", query, maxResults);
-        googleBooksApiService.fetchAndSaveBooks(query, maxResults);
+        List<Book> savedBooks = googleBooksApiService.fetchAndSaveBooks(query, maxResults);
+        savedBooks.forEach(this::onBookSaved);
         logger.info("Finished populating books.");
     }
 
@@ -81,4 +249,37 @@ public class BookService {
         return bookRepository.count();
     }
 
+    // Keeps the in-memory catalog structures in step with every write that goes through this service,
+    // once that write has committed. bumpCatalog defers itself, so it stays outside the deferred block.
+    private void onBookSaved(Book book) {
+        AfterCommit.run(() -> {
+            searchIndex.index(book);
+            suggestIndex.index(book);
+            facetIndex.index(book);
+            responseCache.invalidateBook(book.getId());
+        });
+        versionTracker.bumpCatalog();
+    }
+
+    private void onBooksSaved(List<Book> books) {
+        AfterCommit.run(() -> {
+            for (Book book : books) {
+                searchIndex.index(book);
+                suggestIndex.index(book);
+                facetIndex.index(book);
+            }
+            responseCache.invalidateBooks(books.stream().map(Book::getId).collect(Collectors.toList()));
+        });
+        versionTracker.bumpCatalog();
+    }
+
+    private void onBookDeleted(Long id) {
+        AfterCommit.run(() -> {
+            searchIndex.remove(id);
+            suggestIndex.remove(id);
+            facetIndex.remove(id);
+            responseCache.invalidateBook(id);
+        });
+        versionTracker.bumpCatalog();
+    }
 }
\ No newline at end of file
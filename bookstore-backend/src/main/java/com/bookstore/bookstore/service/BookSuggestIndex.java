@@ -0,0 +1,361 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.config.ReadWriteRoutingDataSource;
+import com.bookstore.bookstore.model.BookSales;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.model.CatalogItem;
+import com.bookstore.bookstore.payload.response.BookSuggestion;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.OrderItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Typeahead index over normalized book titles and authors.
+ * Each book weighs one plus the units it has sold, and a title or author weighs the sum over the
+ * books carrying it, so best sellers complete first and unsold books can still be found.
+ * Completions for a prefix are returned best-first by walking the trie with subtree max-weight
+ * bounds.
+ */
+@Component
+public class BookSuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSuggestIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final BookRepository bookRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Trie titles = new Trie();
+    private final Trie authors = new Trie();
+    // book id -> values and weight as indexed, so updates and deletes can retract the old values
+    private final Map<Long, IndexedBook> indexedBooks = new HashMap<>();
+
+    public BookSuggestIndex(BookRepository bookRepository, OrderItemRepository orderItemRepository) {
+        this.bookRepository = bookRepository;
+        this.orderItemRepository = orderItemRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            authors.clear();
+            indexedBooks.clear();
+            Map<Long, Long> unitsSold = new HashMap<>();
+            ReadWriteRoutingDataSource.readFromPrimary(orderItemRepository::findUnitsSoldPerBook)
+                    .forEach(sales -> unitsSold.put(sales.getBookId(), sales.getUnits()));
+            List<BookSummary> batch = ReadWriteRoutingDataSource.readFromPrimary(
+                    () -> bookRepository.findSummariesByOrderByIdAsc(PageRequest.of(0, REBUILD_BATCH_SIZE)));
+            while (!batch.isEmpty()) {
+                batch.forEach(book -> addBook(book, weight(unitsSold.getOrDefault(book.getId(), 0L))));
+                Long lastId = batch.get(batch.size() - 1).getId();
+                batch = ReadWriteRoutingDataSource.readFromPrimary(
+                        () -> bookRepository.findSummariesByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Built suggest index over {} books in {} ms", indexedBooks.size(), System.currentTimeMillis() - start);
+    }
+
+    public void index(CatalogItem book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            // An edit keeps the sales the book has earned so far.
+            IndexedBook previous = removeBook(book.getId());
+            addBook(book, previous == null ? 1 : previous.weight);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeBook(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds committed sales, in units per book id, to the weights of the books sold.
+     */
+    public void recordSales(Map<Long, Integer> unitsByBook) {
+        lock.writeLock().lock();
+        try {
+            unitsByBook.forEach((bookId, units) -> {
+                IndexedBook sold = indexedBooks.get(bookId);
+                if (sold != null && units > 0) {
+                    removeBook(bookId);
+                    addBook(sold.title, sold.author, bookId, weight(sold.weight - 1L + units));
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} title and author completions for the prefix, highest weight first.
+     */
+    public List<BookSuggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<BookSuggestion> suggestions = new ArrayList<>(limit * 2);
+        lock.readLock().lock();
+        try {
+            titles.topK(key, limit, "TITLE", suggestions);
+            authors.topK(key, limit, "AUTHOR", suggestions);
+        } finally {
+            lock.readLock().unlock();
+        }
+        suggestions.sort(Comparator.comparingInt(BookSuggestion::getWeight).reversed()
+                .thenComparing(BookSuggestion::getText));
+        return suggestions.size() > limit ? new ArrayList<>(suggestions.subList(0, limit)) : suggestions;
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String stripped = DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return WHITESPACE.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    // Capped so that a title or author summed over many best sellers stays within an int.
+    private static int weight(long unitsSold) {
+        return (int) Math.min(1 + unitsSold, 1 << 20);
+    }
+
+    // Callers must hold the write lock.
+    private void addBook(CatalogItem book, int weight) {
+        String title = book.getTitle() == null ? "" : book.getTitle().trim();
+        String author = book.getAuthor() == null ? "" : book.getAuthor().trim();
+        addBook(title, author, book.getId(), weight);
+    }
+
+    // Callers must hold the write lock.
+    private void addBook(String title, String author, Long bookId, int weight) {
+        titles.adjust(normalize(title), title, weight);
+        authors.adjust(normalize(author), author, weight);
+        indexedBooks.put(bookId, new IndexedBook(title, author, weight));
+    }
+
+    // Callers must hold the write lock.
+    private IndexedBook removeBook(Long bookId) {
+        IndexedBook indexed = indexedBooks.remove(bookId);
+        if (indexed != null) {
+            titles.adjust(normalize(indexed.title), indexed.title, -indexed.weight);
+            authors.adjust(normalize(indexed.author), indexed.author, -indexed.weight);
+        }
+        return indexed;
+    }
+
+    private static final class IndexedBook {
+        final String title;
+        final String author;
+        final int weight;
+
+        IndexedBook(String title, String author, int weight) {
+            this.title = title;
+            this.author = author;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Character trie with children kept in parallel sorted arrays (no per-node hash maps).
+     * Every node caches the highest entry weight in its subtree so top-k queries can prune.
+     */
+    static final class Trie {
+
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private static final class Node {
+            char[] labels = NO_LABELS;
+            Node[] children = NO_CHILDREN;
+            String display;
+            int weight;
+            int maxWeight;
+
+            Node child(char c) {
+                int i = Arrays.binarySearch(labels, c);
+                return i >= 0 ? children[i] : null;
+            }
+
+            Node getOrAddChild(char c) {
+                int i = Arrays.binarySearch(labels, c);
+                if (i >= 0) {
+                    return children[i];
+                }
+                int at = -i - 1;
+                char[] newLabels = new char[labels.length + 1];
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(labels, 0, newLabels, 0, at);
+                System.arraycopy(children, 0, newChildren, 0, at);
+                newLabels[at] = c;
+                newChildren[at] = new Node();
+                System.arraycopy(labels, at, newLabels, at + 1, labels.length - at);
+                System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+                labels = newLabels;
+                children = newChildren;
+                return newChildren[at];
+            }
+
+            void removeChild(char c) {
+                int at = Arrays.binarySearch(labels, c);
+                if (at < 0) {
+                    return;
+                }
+                char[] newLabels = new char[labels.length - 1];
+                Node[] newChildren = new Node[children.length - 1];
+                System.arraycopy(labels, 0, newLabels, 0, at);
+                System.arraycopy(children, 0, newChildren, 0, at);
+                System.arraycopy(labels, at + 1, newLabels, at, labels.length - at - 1);
+                System.arraycopy(children, at + 1, newChildren, at, children.length - at - 1);
+                labels = newLabels.length == 0 ? NO_LABELS : newLabels;
+                children = newChildren.length == 0 ? NO_CHILDREN : newChildren;
+            }
+
+            void recomputeMaxWeight() {
+                int max = weight;
+                for (Node child : children) {
+                    max = Math.max(max, child.maxWeight);
+                }
+                maxWeight = max;
+            }
+
+            boolean isEmpty() {
+                return weight == 0 && children.length == 0;
+            }
+        }
+
+        private Node root = new Node();
+        private int entries;
+
+        void clear() {
+            root = new Node();
+            entries = 0;
+        }
+
+        int size() {
+            return entries;
+        }
+
+        /**
+         * Adds {@code delta} to the weight of {@code key}, creating or pruning nodes as needed.
+         */
+        void adjust(String key, String display, int delta) {
+            if (key.isEmpty()) {
+                return;
+            }
+            Deque<Node> path = new ArrayDeque<>(key.length() + 1);
+            Node node = root;
+            path.push(node);
+            for (int i = 0; i < key.length(); i++) {
+                node = delta > 0 ? node.getOrAddChild(key.charAt(i)) : node.child(key.charAt(i));
+                if (node == null) {
+                    return;
+                }
+                path.push(node);
+            }
+            int before = node.weight;
+            node.weight = Math.max(0, node.weight + delta);
+            if (before == 0 && node.weight > 0) {
+                node.display = display;
+                entries++;
+            } else if (before > 0 && node.weight == 0) {
+                node.display = null;
+                entries--;
+            }
+
+            // Walk back to the root, pruning empty leaves and refreshing subtree bounds.
+            int depth = key.length();
+            Node child = path.pop();
+            child.recomputeMaxWeight();
+            while (!path.isEmpty()) {
+                Node parent = path.pop();
+                depth--;
+                if (child.isEmpty()) {
+                    parent.removeChild(key.charAt(depth));
+                }
+                parent.recomputeMaxWeight();
+                child = parent;
+            }
+        }
+
+        void topK(String prefix, int k, String field, List<BookSuggestion> out) {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            if (node == null || node.maxWeight == 0) {
+                return;
+            }
+            // Best-first search: a node enters the queue with its subtree bound, an entry with its exact weight.
+            PriorityQueue<Candidate> queue = new PriorityQueue<>((a, b) -> Integer.compare(b.bound, a.bound));
+            queue.add(new Candidate(node, node.maxWeight, false));
+            int found = 0;
+            while (!queue.isEmpty() && found < k) {
+                Candidate candidate = queue.poll();
+                Node current = candidate.node;
+                if (candidate.entry) {
+                    out.add(new BookSuggestion(current.display, field, current.weight));
+                    found++;
+                    continue;
+                }
+                if (current.weight > 0) {
+                    queue.add(new Candidate(current, current.weight, true));
+                }
+                for (Node child : current.children) {
+                    queue.add(new Candidate(child, child.maxWeight, false));
+                }
+            }
+        }
+
+        private static final class Candidate {
+            final Node node;
+            final int bound;
+            final boolean entry;
+
+            Candidate(Node node, int bound, boolean entry) {
+                this.node = node;
+                this.bound = bound;
+                this.entry = entry;
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.bookstore.bookstore.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of cart mutations that have not reached the database yet, written before the
+ * in-memory cart is changed so a crash loses nothing that was acknowledged.
+ * The log is split into numbered segment files; {@link #rotate()} starts a new segment and
+ * {@link #deleteSegmentsBefore(long)} drops segments whose records are known to be flushed.
+ * <p>
+ * Records are text lines holding absolute values, so replaying a record twice is harmless:
+ * {@code S <userId> <bookId> <quantity>} sets a line (quantity 0 removes it) and
+ * {@code C <userId>} marks the user's cart as cleared in the database.
+ */
+public class CartJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartJournal.class);
+    private static final String PREFIX = "cart-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final boolean sync;
+    private FileChannel channel;
+    private long segment;
+    private long recordsInSegment;
+
+    /** A record read back from the journal; {@code bookId} is null for a clear record. */
+    @Data
+    @AllArgsConstructor
+    public static class Entry {
+        private long userId;
+        private Long bookId;
+        private int quantity;
+    }
+
+    /**
+     * @param directory Where segment files are kept; created on {@link #open()}.
+     * @param sync Force every record to the storage device, surviving an OS crash as well as a
+     *             process crash, at the cost of one fsync per mutation.
+     */
+    public CartJournal(Path directory, boolean sync) {
+        this.directory = directory;
+        this.sync = sync;
+    }
+
+    /** Segments left behind by a previous run, oldest first. */
+    public synchronized List<Path> existingSegments() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(CartJournal::isSegment)
+                    .sorted(Comparator.comparingLong(CartJournal::segmentNumber))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list cart journal directory " + directory, e);
+        }
+    }
+
+    /**
+     * Reads every record of {@code segments} in order. A torn last record without its newline,
+     * left by a crash in the middle of a write, was never acknowledged and is ignored.
+     */
+    public static void replay(List<Path> segments, Consumer<Entry> consumer) throws IOException {
+        for (Path segmentFile : segments) {
+            String content = Files.readString(segmentFile, StandardCharsets.UTF_8);
+            int start = 0;
+            int end;
+            while ((end = content.indexOf('\n', start)) >= 0) {
+                String line = content.substring(start, end);
+                start = end + 1;
+                Entry entry = parse(line);
+                if (entry == null) {
+                    logger.warn("Skipping unreadable cart journal record in {}: '{}'", segmentFile, line);
+                } else {
+                    consumer.accept(entry);
+                }
+            }
+            if (start < content.length()) {
+                logger.warn("Ignoring torn record at the end of cart journal segment {}", segmentFile);
+            }
+        }
+    }
+
+    /** Opens a fresh segment numbered after every existing one. */
+    public synchronized void open() {
+        List<Path> existing = existingSegments();
+        segment = existing.isEmpty() ? 0 : segmentNumber(existing.get(existing.size() - 1));
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create cart journal directory " + directory, e);
+        }
+        startNextSegment();
+    }
+
+    public synchronized void appendSet(long userId, long bookId, int quantity) {
+        append("S " + userId + ' ' + bookId + ' ' + quantity + '\n');
+    }
+
+    public synchronized void appendClear(long userId) {
+        append("C " + userId + '\n');
+    }
+
+    /**
+     * Starts a new segment if the current one holds records.
+     * @return The number of the now current segment; every record appended before the call lives
+     *         in a lower-numbered segment.
+     */
+    public synchronized long rotate() {
+        if (recordsInSegment > 0) {
+            startNextSegment();
+        }
+        return segment;
+    }
+
+    /** Deletes closed segments numbered below {@code segmentNumber}. */
+    public synchronized void deleteSegmentsBefore(long segmentNumber) {
+        for (Path segmentFile : existingSegments()) {
+            long number = segmentNumber(segmentFile);
+            if (number < segmentNumber) {
+                try {
+                    Files.deleteIfExists(segmentFile);
+                } catch (IOException e) {
+                    logger.warn("Cannot delete flushed cart journal segment {}: {}", segmentFile, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Deletes the given segments of a previous run once their records are in the database. */
+    public synchronized void delete(List<Path> segments) {
+        for (Path segmentFile : segments) {
+            try {
+                Files.deleteIfExists(segmentFile);
+            } catch (IOException e) {
+                logger.warn("Cannot delete replayed cart journal segment {}: {}", segmentFile, e.getMessage());
+            }
+        }
+    }
+
+    /** Closes the journal, deleting the current segment too when {@code flushed} says it is no longer needed. */
+    public synchronized void close(boolean flushed) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Error closing cart journal: {}", e.getMessage());
+        }
+        channel = null;
+        if (flushed) {
+            delete(existingSegments());
+        }
+    }
+
+    // Callers must hold the monitor.
+    private void append(String record) {
+        if (channel == null) {
+            throw new IllegalStateException("Cart journal is not open.");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record.getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write to the cart journal", e);
+        }
+        recordsInSegment++;
+    }
+
+    // Callers must hold the monitor.
+    private void startNextSegment() {
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+            }
+            segment++;
+            channel = FileChannel.open(segmentPath(segment),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            recordsInSegment = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open cart journal segment in " + directory, e);
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(PREFIX + String.format("%012d", number) + SUFFIX);
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX) && segmentNumberOrNull(name) != null;
+    }
+
+    private static long segmentNumber(Path file) {
+        return segmentNumberOrNull(file.getFileName().toString());
+    }
+
+    private static Long segmentNumberOrNull(String name) {
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Entry parse(String line) {
+        String[] parts = line.trim().split(" ");
+        try {
+            if (parts.length == 4 && parts[0].equals("S")) {
+                return new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), Integer.parseInt(parts[3]));
+            }
+            if (parts.length == 2 && parts[0].equals("C")) {
+                return new Entry(Long.parseLong(parts[1]), null, 0);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,89 @@
+package com.bookstore.bookstore.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * One step of a cart batch ({@code POST /api/cart/batch}). Steps are applied in order:
+ * <ul>
+ *   <li>{@code add}: adds {@code quantity} units of {@code bookId}, creating the line if needed;</li>
+ *   <li>{@code update}: sets the quantity of the line given by {@code cartItemId} or {@code bookId},
+ *       creating it for a book id; 0 or less removes it;</li>
+ *   <li>{@code remove}: removes the line given by {@code cartItemId} or {@code bookId}.</li>
+ * </ul>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperation {
+
+    public static final String ADD = "add";
+    public static final String UPDATE = "update";
+    public static final String REMOVE = "remove";
+
+    private String op;
+    private Long bookId;
+    private Long cartItemId;
+    private Integer quantity;
+
+    /**
+     * Applies {@code operations} in order to {@code quantities} (book id to quantity), which is
+     * changed in place; removed lines are dropped from the map.
+     * @param cartItemBooks Maps a cart item id of the user's cart to its book id, or to null if
+     *                      the cart has no such line.
+     * @throws RuntimeException if an operation is malformed or names a line the cart does not have;
+     *         {@code quantities} is then partly updated and must be discarded.
+     */
+    public static void applyAll(List<CartOperation> operations, Map<Long, Integer> quantities,
+                                Function<Long, Long> cartItemBooks) {
+        for (int i = 0; i < operations.size(); i++) {
+            CartOperation operation = operations.get(i);
+            String op = operation.getOp() == null ? "" : operation.getOp().toLowerCase(Locale.ROOT);
+            switch (op) {
+                case ADD:
+                    if (operation.getBookId() == null || operation.getQuantity() == null || operation.getQuantity() <= 0) {
+                        throw new RuntimeException("Operation " + (i + 1) + ": add needs a bookId and a positive quantity.");
+                    }
+                    quantities.merge(operation.getBookId(), operation.getQuantity(), Integer::sum);
+                    break;
+                case UPDATE:
+                    if (operation.getQuantity() == null) {
+                        throw new RuntimeException("Operation " + (i + 1) + ": update needs a quantity.");
+                    }
+                    Long bookId = target(operation, i, cartItemBooks);
+                    if (operation.getQuantity() <= 0) {
+                        quantities.remove(bookId);
+                    } else {
+                        quantities.put(bookId, operation.getQuantity());
+                    }
+                    break;
+                case REMOVE:
+                    quantities.remove(target(operation, i, cartItemBooks));
+                    break;
+                default:
+                    throw new RuntimeException("Operation " + (i + 1) + ": unknown op '" + operation.getOp()
+                            + "', expected add, update or remove.");
+            }
+        }
+    }
+
+    private static Long target(CartOperation operation, int index, Function<Long, Long> cartItemBooks) {
+        if (operation.getCartItemId() != null) {
+            Long bookId = cartItemBooks.apply(operation.getCartItemId());
+            if (bookId == null) {
+                throw new RuntimeException("Operation " + (index + 1) + ": cart item not found with ID: " + operation.getCartItemId());
+            }
+            return bookId;
+        }
+        if (operation.getBookId() == null) {
+            throw new RuntimeException("Operation " + (index + 1) + ": " + operation.getOp() + " needs a cartItemId or a bookId.");
+        }
+        return operation.getBookId();
+    }
+}
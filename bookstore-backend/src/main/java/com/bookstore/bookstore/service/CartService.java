@@ -2,17 +2,28 @@ package com.bookstore.bookstore.service;
 
 import com.bookstore.bookstore.model.Book;
 import com.bookstore.bookstore.model.CartItem;
+import com.bookstore.bookstore.model.CartTotals;
 import com.bookstore.bookstore.model.User;
 import com.bookstore.bookstore.repository.BookRepository;
 import com.bookstore.bookstore.repository.CartItemRepository;
 import lombok.RequiredArgsConstructor; // NEW: Import RequiredArgsConstructor
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger; // NEW: Import Logger
 import org.slf4j.LoggerFactory; // NEW: Import LoggerFactory
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor // NEW: Replaces explicit constructor for final fields
@@ -22,6 +33,11 @@ public class CartService {
 
     private final CartItemRepository cartItemRepository;
     private final BookRepository bookRepository;
+    private final ResourceVersionTracker versionTracker;
+    private final WriteBehindCartStore cartStore;
+
+    @Value("${cart.batch.max-operations:200}")
+    private int maxBatchOperations;
 
     // The constructor is now generated by @RequiredArgsConstructor
     // public CartService(CartItemRepository cartItemRepository, BookRepository bookRepository) {
@@ -31,13 +47,14 @@ public class CartService {
 
     /**
      * Adds a book to the user's cart or updates its quantity if already present.
+     * In write-through mode this is a single upsert statement, so concurrent adds of the same book
+     * all land on one line and none is lost.
      * @param user The authenticated user.
      * @param bookId The ID of the book to add.
      * @param quantity The amount to add (should be positive).
      * @return The updated or newly created CartItem.
      * @throws RuntimeException if book is not found or quantity is invalid. (Changed from IllegalArgumentException)
      */
-    @Transactional // Ensures the entire operation is atomic
     public CartItem addBookToCart(User user, Long bookId, int quantity) {
         logger.info("Attempting to add book {} (qty {}) to cart for user {}", bookId, quantity, user.getUsername());
         if (quantity <= 0) {
@@ -47,22 +64,25 @@ public class CartService {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new RuntimeException("Book not found with ID: " + bookId)); // Changed to RuntimeException
 
-        Optional<CartItem> existingCartItem = cartItemRepository.findByUserAndBook(user, book);
-
-        CartItem cartItem;
-        if (existingCartItem.isPresent()) {
-            cartItem = existingCartItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
-            logger.debug("Updated quantity for existing cart item (id: {}) to {}", cartItem.getId(), cartItem.getQuantity());
-        } else {
-            cartItem = new CartItem();
-            cartItem.setUser(user);
-            cartItem.setBook(book);
-            cartItem.setQuantity(quantity);
-            logger.debug("Created new cart item for book {} with quantity {}", bookId, quantity);
+        if (cartStore.isEnabled()) {
+            CartItem cartItem = cartStore.add(user, book, quantity);
+            versionTracker.bumpCart(user.getUsername());
+            return cartItem;
         }
 
-        return cartItemRepository.save(cartItem);
+        // The upsert is the atomic unit, each attempt in its own transaction: a failed statement
+        // would otherwise doom the surrounding transaction and the retry with it.
+        try {
+            cartItemRepository.upsertQuantity(user.getId(), bookId, quantity, LocalDateTime.now());
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Concurrent first add of book {} for user {}, retrying as an update", bookId, user.getUsername());
+            cartItemRepository.upsertQuantity(user.getId(), bookId, quantity, LocalDateTime.now());
+        }
+        versionTracker.bumpCart(user.getUsername());
+        CartItem savedCartItem = cartItemRepository.findByUserAndBookIdWithBook(user, bookId)
+                .orElseThrow(() -> new RuntimeException("Cart item for book " + bookId + " vanished after being added."));
+        logger.debug("Cart item (id: {}) for book {} now has quantity {}", savedCartItem.getId(), bookId, savedCartItem.getQuantity());
+        return savedCartItem;
     }
 
     /**
@@ -73,7 +93,7 @@ public class CartService {
     @Transactional(readOnly = true) // NEW: Mark as read-only transaction
     public List<CartItem> getUserCart(User user) {
         logger.info("Retrieving cart items for user {}", user.getUsername());
-        List<CartItem> cartItems = cartItemRepository.findByUser(user);
+        List<CartItem> cartItems = cartStore.isEnabled() ? cartStore.getCart(user) : cartItemRepository.findByUserWithBook(user);
         logger.debug("Found {} cart items for user {}", cartItems.size(), user.getUsername());
         return cartItems;
     }
@@ -89,8 +109,13 @@ public class CartService {
     @Transactional
     public CartItem updateCartItemQuantity(User user, Long cartItemId, int newQuantity) {
         logger.info("Attempting to update cart item {} for user {} to quantity {}", cartItemId, user.getUsername(), newQuantity);
+        if (cartStore.isEnabled()) {
+            CartItem cartItem = cartStore.update(user, cartItemId, newQuantity);
+            versionTracker.bumpCart(user.getUsername());
+            return cartItem;
+        }
 
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
+        CartItem cartItem = cartItemRepository.findByIdWithBook(cartItemId)
                 .orElseThrow(() -> new RuntimeException("Cart item not found with ID: " + cartItemId)); // Changed to RuntimeException
 
         if (!cartItem.getUser().getId().equals(user.getId())) {
@@ -100,11 +125,13 @@ public class CartService {
         if (newQuantity <= 0) {
             // NEW: If quantity is 0 or less, remove the item from the cart
             cartItemRepository.delete(cartItem);
+            versionTracker.bumpCart(user.getUsername());
             logger.info("Cart item {} removed from cart for user {} as quantity was zero or less.", cartItemId, user.getUsername());
             return null; // Indicate that the item was removed
         }
 
         cartItem.setQuantity(newQuantity);
+        versionTracker.bumpCart(user.getUsername());
         logger.debug("Updated quantity for cart item {} to {}", cartItemId, newQuantity);
         return cartItemRepository.save(cartItem);
     }
@@ -118,6 +145,11 @@ public class CartService {
     @Transactional
     public void removeCartItem(User user, Long cartItemId) {
         logger.info("Attempting to remove cart item {} from cart for user {}", cartItemId, user.getUsername());
+        if (cartStore.isEnabled()) {
+            cartStore.remove(user, cartItemId);
+            versionTracker.bumpCart(user.getUsername());
+            return;
+        }
         CartItem cartItem = cartItemRepository.findById(cartItemId)
                 .orElseThrow(() -> new RuntimeException("Cart item not found with ID: " + cartItemId)); // Changed to RuntimeException
 
@@ -126,17 +158,99 @@ public class CartService {
         }
 
         cartItemRepository.delete(cartItem);
+        versionTracker.bumpCart(user.getUsername());
         logger.info("Cart item {} successfully removed for user {}", cartItemId, user.getUsername());
     }
 
     /**
-     * Clears all items from a user's cart.
+     * Applies a batch of add/update/remove operations (see {@link CartOperation}) in one
+     * transaction, all or nothing, and returns the resulting cart. Whatever the batch size, this
+     * costs one query for the books, one for the current lines, one DELETE, one JDBC batch each of
+     * UPDATEs and INSERTs, and the final cart read.
+     * @param user The authenticated user.
+     * @throws RuntimeException if the batch is empty or too large, a book does not exist, or an
+     *         operation is invalid; nothing is applied.
+     */
+    @Transactional
+    public List<CartItem> applyOperations(User user, List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new RuntimeException("The batch has no operations.");
+        }
+        if (operations.size() > maxBatchOperations) {
+            throw new RuntimeException("A batch holds at most " + maxBatchOperations + " operations.");
+        }
+        logger.info("Applying {} cart operations for user {}", operations.size(), user.getUsername());
+        Set<Long> missingBooks = operations.stream()
+                .map(CartOperation::getBookId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(HashSet::new));
+        if (!missingBooks.isEmpty()) {
+            bookRepository.findSummariesByIdIn(missingBooks).forEach(book -> missingBooks.remove(book.getId()));
+            if (!missingBooks.isEmpty()) {
+                throw new RuntimeException("Book not found with ID: " + missingBooks.iterator().next());
+            }
+        }
+
+        if (cartStore.isEnabled()) {
+            cartStore.applyOperations(user, operations);
+        } else {
+            applyToRows(user, operations);
+        }
+        versionTracker.bumpCart(user.getUsername());
+        return getUserCart(user);
+    }
+
+    // Folds the batch over the current lines, then writes only the difference.
+    private void applyToRows(User user, List<CartOperation> operations) {
+        List<CartItem> rows = cartItemRepository.findByUser(user);
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        Map<Long, Long> bookOfItem = new HashMap<>();
+        for (CartItem row : rows) {
+            quantities.put(row.getBook().getId(), row.getQuantity());
+            bookOfItem.put(row.getId(), row.getBook().getId());
+        }
+        CartOperation.applyAll(operations, quantities, bookOfItem::get);
+
+        List<Long> removed = new ArrayList<>();
+        for (CartItem row : rows) {
+            Integer quantity = quantities.remove(row.getBook().getId());
+            if (quantity == null) {
+                removed.add(row.getId());
+            } else if (!quantity.equals(row.getQuantity())) {
+                row.setQuantity(quantity); // Flushed with the other changed rows as one JDBC batch.
+            }
+        }
+        List<CartItem> added = new ArrayList<>();
+        quantities.forEach((bookId, quantity) ->
+                added.add(new CartItem(null, user, bookRepository.getReferenceById(bookId), quantity)));
+        if (!removed.isEmpty()) {
+            cartItemRepository.deleteAllByIdInBatch(removed);
+        }
+        cartItemRepository.saveAll(added);
+    }
+
+    /**
+     * Total price and item counts of the user's cart, computed with a single aggregate query.
+     * @param user The authenticated user.
+     */
+    @Transactional(readOnly = true)
+    public CartTotals getCartTotals(User user) {
+        return cartStore.isEnabled() ? cartStore.getTotals(user) : cartItemRepository.findTotalsByUser(user);
+    }
+
+    /**
+     * Clears all items from a user's cart. Always writes through to the database, so a checkout
+     * that clears the cart commits or rolls back together with the clear.
      * @param user The authenticated user.
      */
     @Transactional
     public void clearCart(User user) {
         logger.info("Attempting to clear cart for user {}", user.getUsername());
+        if (cartStore.isEnabled()) {
+            cartStore.clear(user);
+        }
         cartItemRepository.deleteByUser(user);
+        versionTracker.bumpCart(user.getUsername());
         logger.info("Cart successfully cleared for user {}", user.getUsername());
     }
 }
\ No newline at end of file
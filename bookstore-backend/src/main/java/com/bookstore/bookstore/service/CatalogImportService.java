@@ -0,0 +1,319 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.payload.response.BookImportError;
+import com.bookstore.bookstore.payload.response.BookImportResponse;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bulk catalog import from a streamed JSON array or CSV body. Rows are validated one by one and
+ * written in batches of {@code catalog.import.batch-size}, each batch in its own transaction, so
+ * memory use is bounded by the batch size rather than the feed size.
+ * Row numbers in the report are 1-based positions of the record in the feed (CSV header excluded).
+ */
+@Service
+public class CatalogImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    public enum Format {
+        JSON, CSV;
+
+        /** Picks the format from the request Content-Type; JSON when absent. */
+        public static Format fromContentType(String contentType) {
+            if (contentType == null || contentType.toLowerCase(Locale.ROOT).contains("json")) {
+                return JSON;
+            }
+            if (contentType.toLowerCase(Locale.ROOT).contains("csv")) {
+                return CSV;
+            }
+            throw new IllegalArgumentException("Unsupported import content type: " + contentType);
+        }
+    }
+
+    private final BookService bookService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public CatalogImportService(BookService bookService, ObjectMapper objectMapper,
+                                @Value("${catalog.import.batch-size:500}") int batchSize,
+                                @Value("${catalog.import.max-errors:1000}") int maxErrors) {
+        this.bookService = bookService;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Imports every valid row of {@code in}. Invalid rows are skipped and reported; a malformed
+     * feed stops the import at the offending row, keeping the batches already written.
+     * @throws IllegalArgumentException if the feed does not start like a book feed (no JSON array,
+     *         or a CSV header without title, author and price columns).
+     */
+    public BookImportResponse importBooks(Format format, InputStream in) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportRun run = new ImportRun();
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == Format.CSV) {
+            importCsv(reader, run);
+        } else {
+            importJson(reader, run);
+        }
+        run.flush();
+        long elapsed = System.currentTimeMillis() - start;
+        logger.info("Imported {} books ({} rejected) from {} in {} ms", run.imported, run.failed, format, elapsed);
+        return new BookImportResponse(run.imported, run.failed, run.errors);
+    }
+
+    private void importJson(Reader reader, ImportRun run) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(reader)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of books.");
+            }
+            long row = 0;
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                    row++;
+                    if (token != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        run.reject(row, "Expected a JSON object.");
+                        continue;
+                    }
+                    JsonNode node = parser.readValueAsTree();
+                    run.accept(row, name -> {
+                        JsonNode value = node.get(name);
+                        return value == null || value.isNull() ? null : value.asText();
+                    });
+                }
+            } catch (JsonProcessingException e) {
+                run.reject(row, "Malformed JSON, import stopped: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private void importCsv(Reader reader, ImportRun run) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : new String[] { "title", "author", "price" }) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header must include a '" + required + "' column.");
+            }
+        }
+        long row = 0;
+        try {
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                if (record.size() == 1 && record.get(0).isEmpty()) {
+                    continue;
+                }
+                row++;
+                List<String> values = record;
+                run.accept(row, name -> {
+                    Integer index = columns.get(name.toLowerCase(Locale.ROOT));
+                    return index == null || index >= values.size() ? null : values.get(index);
+                });
+            }
+        } catch (IllegalArgumentException e) {
+            run.reject(row + 1, e.getMessage() + " Import stopped.");
+        }
+    }
+
+    private static Book toBook(Function<String, String> field) {
+        Book book = new Book();
+        book.setTitle(requiredText(field, "title"));
+        book.setAuthor(requiredText(field, "author"));
+        book.setDescription(blankToNull(field.apply("description")));
+        book.setImageUrl(optionalText(field, "imageUrl"));
+
+        String price = blankToNull(field.apply("price"));
+        if (price == null) {
+            throw new IllegalArgumentException("price is required.");
+        }
+        try {
+            BigDecimal value = new BigDecimal(price.trim());
+            if (value.signum() < 0 || value.scale() > 2 || value.precision() - value.scale() > 8) {
+                throw new IllegalArgumentException("price must be between 0 and 99999999.99 with at most 2 decimals.");
+            }
+            book.setPrice(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("price is not a number: " + price);
+        }
+
+        String quantity = blankToNull(field.apply("quantity"));
+        try {
+            book.setQuantity(quantity == null ? 0 : Integer.parseInt(quantity.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("quantity is not an integer: " + quantity);
+        }
+        if (book.getQuantity() < 0) {
+            throw new IllegalArgumentException("quantity must not be negative.");
+        }
+        return book;
+    }
+
+    private static String requiredText(Function<String, String> field, String name) {
+        String value = optionalText(field, name);
+        if (value == null) {
+            throw new IllegalArgumentException(name + " is required.");
+        }
+        return value;
+    }
+
+    private static String optionalText(Function<String, String> field, String name) {
+        String value = blankToNull(field.apply(name));
+        if (value != null && value.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException(name + " is longer than " + MAX_TEXT_LENGTH + " characters.");
+        }
+        return value;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    /** State of one import: the pending batch and the running report. */
+    private final class ImportRun {
+        private final List<Book> batch = new ArrayList<>(batchSize);
+        private final List<Long> batchRows = new ArrayList<>(batchSize);
+        private final List<BookImportError> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+
+        void accept(long row, Function<String, String> field) {
+            Book book;
+            try {
+                book = toBook(field);
+            } catch (IllegalArgumentException e) {
+                reject(row, e.getMessage());
+                return;
+            }
+            batch.add(book);
+            batchRows.add(row);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(long row, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new BookImportError(row, message));
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                bookService.addBooks(batch);
+                imported += batch.size();
+            } catch (RuntimeException e) {
+                // A database error fails the whole batch; retry row by row to pin it on the offending rows.
+                for (int i = 0; i < batch.size(); i++) {
+                    Book book = batch.get(i);
+                    book.setId(null);
+                    try {
+                        bookService.addBooks(List.of(book));
+                        imported++;
+                    } catch (RuntimeException rowError) {
+                        reject(batchRows.get(i), rootMessage(rowError));
+                    }
+                }
+            }
+            batch.clear();
+            batchRows.clear();
+        }
+    }
+
+    /**
+     * Streaming RFC 4180 record reader: quoted fields may contain commas, doubled quotes and line breaks.
+     */
+    static final class CsvRecordReader {
+        private final Reader in;
+
+        CsvRecordReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * @return The next record's fields, or null at end of input.
+         * @throws IllegalArgumentException if the input ends inside a quoted field.
+         */
+        List<String> next() throws IOException {
+            int c = in.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("Unterminated quoted CSV field.");
+                    }
+                    if (c == '"') {
+                        c = in.read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.config.ReadWriteRoutingDataSource;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Byte-budgeted LRU cache of already-encoded JSON catalog responses.
+ * Keys starting with {@link #BOOK_KEY_PREFIX} depend on a single book; every other key is a
+ * catalog listing and is dropped on any catalog mutation.
+ */
+@Component
+public class CatalogResponseCache {
+
+    public static final String BOOK_KEY_PREFIX = "book:";
+    public static final String LIST_KEY_PREFIX = "list:";
+
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final boolean gzipEnabled;
+    private final int gzipMinBytes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    // Bumped on every invalidation so a load that raced with a write is not cached.
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CatalogResponseCache(ObjectMapper objectMapper,
+                                @Value("${catalog.cache.max-bytes:33554432}") long maxBytes,
+                                @Value("${catalog.cache.gzip:true}") boolean gzipEnabled,
+                                @Value("${catalog.cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        this.gzipEnabled = gzipEnabled;
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    public static class Entry {
+        private final byte[] json;
+        private final byte[] gzip;
+
+        Entry(byte[] json, byte[] gzip) {
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        /** Gzip-encoded body, or null when the body was too small to be worth compressing. */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        long weight() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+
+    /**
+     * Returns the cached entry for {@code key}, or loads, encodes and caches the value.
+     * @return null if the loader returned null (nothing is cached in that case).
+     */
+    public Entry getOrLoad(String key, Supplier<?> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            misses.increment();
+            loadGeneration = generation;
+        }
+
+        // Loaded from the primary: a lagging replica would cache what the last invalidation dropped.
+        Object value = ReadWriteRoutingDataSource.readFromPrimary(loader);
+        if (value == null) {
+            return null;
+        }
+        Entry entry = encode(value);
+        if (entry.weight() > maxBytes) {
+            return entry;
+        }
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                Entry previous = entries.put(key, entry);
+                if (previous != null) {
+                    totalBytes -= previous.weight();
+                }
+                totalBytes += entry.weight();
+                evictOverBudget();
+            }
+        }
+        return entry;
+    }
+
+    /** Drops the single-book entry for {@code bookId} and every catalog listing. */
+    public void invalidateBook(Long bookId) {
+        invalidateBooks(List.of(bookId));
+    }
+
+    /** Drops the single-book entries for {@code bookIds} and every catalog listing, in one pass. */
+    public synchronized void invalidateBooks(Collection<Long> bookIds) {
+        generation++;
+        for (Long bookId : bookIds) {
+            Entry removed = entries.remove(BOOK_KEY_PREFIX + bookId);
+            if (removed != null) {
+                totalBytes -= removed.weight();
+                invalidations.increment();
+            }
+        }
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> next = iterator.next();
+            if (next.getKey().startsWith(LIST_KEY_PREFIX)) {
+                totalBytes -= next.getValue().weight();
+                iterator.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    public synchronized Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("entries", (long) entries.size());
+        stats.put("bytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    // Callers must hold the monitor.
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().getValue().weight();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private Entry encode(Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            byte[] gzip = null;
+            if (gzipEnabled && json.length >= gzipMinBytes) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4);
+                try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+                    out.write(json);
+                }
+                gzip = buffer.toByteArray();
+            }
+            return new Entry(json, gzip);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize catalog response: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compress catalog response: " + e.getMessage(), e);
+        }
+    }
+}
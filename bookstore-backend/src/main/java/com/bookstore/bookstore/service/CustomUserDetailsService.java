@@ -1,22 +1,23 @@
 package com.bookstore.bookstore.service; // It's common to place this in service or a dedicated security package
 
+import com.bookstore.bookstore.config.ReadWriteRoutingDataSource;
 import com.bookstore.bookstore.model.User; // Your User entity
 import com.bookstore.bookstore.repository.UserRepository; // Your UserRepository
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.security.core.authority.SimpleGrantedAuthority; // For roles/authorities
-import java.util.Collections; // For Collections.singletonList
 
 
 @Service // Marks this as a Spring Service component
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository, PrincipalCache principalCache) {
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
     }
 
     public User loadUserEntityByUsername(String username) {
@@ -24,19 +25,31 @@ public class CustomUserDetailsService implements UserDetailsService {
                          .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
     }
 
+    /**
+     * The user behind an authenticated principal. An {@link AuthenticatedUser} already carries
+     * everything services need, so only other principals cost a lookup.
+     */
+    public User loadUserEntity(UserDetails principal) {
+        if (principal instanceof AuthenticatedUser) {
+            return ((AuthenticatedUser) principal).toUser();
+        }
+        return loadUserEntityByUsername(principal.getUsername());
+    }
+
+    /** Served from {@link PrincipalCache} when possible, so authenticated requests skip the user lookup. */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // Find the user by username in your database
-        User user = userRepository.findByUsername(username)
+        AuthenticatedUser cached = principalCache.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = principalCache.generation();
+        User user = ReadWriteRoutingDataSource.readFromPrimary(() -> userRepository.findByUsername(username))
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
-        // Convert your User entity to Spring Security's UserDetails object
-        // NOW, instead of a default "ROLE_USER", we use the actual role stored in your User model.
-        // This 'role' field was added to the User.java entity in a previous step.
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),                  // Username
-                user.getPassword(),                  // Hashed password
-                Collections.singletonList(new SimpleGrantedAuthority(user.getRole())) // <--- CHANGED: Use the role from the user object
-        );
+        // The authority is the role stored on the user, e.g. ROLE_USER or ROLE_ADMIN.
+        AuthenticatedUser principal = new AuthenticatedUser(user);
+        principalCache.put(principal, generation);
+        return principal;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.payload.response.MessageResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the response of a non-idempotent request per (user, Idempotency-Key) so a retry gets the
+ * original response instead of executing the request again. A duplicate that arrives while the
+ * first execution is still running waits for it, up to {@code orders.idempotency.wait-ms}, and shares
+ * its result; if the original is still running after that, the duplicate gets 409 Conflict.
+ * Entries expire after {@code orders.idempotency.ttl-seconds}; the store holds at most
+ * {@code orders.idempotency.max-entries} completed entries, dropping the oldest first.
+ * Server errors (5xx) are not remembered, so the client can retry them.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long waitMillis;
+
+    // Insertion order doubles as expiry order, since every entry gets the same TTL.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    private static final class Entry {
+        final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+        final long createdAt = System.currentTimeMillis();
+    }
+
+    public IdempotencyStore(@Value("${orders.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                            @Value("${orders.idempotency.max-entries:10000}") int maxEntries,
+                            @Value("${orders.idempotency.wait-ms:10000}") long waitMillis) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Runs {@code action} once per {@code scope}/{@code key} pair and returns its response; repeats
+     * within the TTL get the stored response marked with the {@value #REPLAYED_HEADER} header.
+     */
+    public ResponseEntity<?> execute(String scope, String key, Supplier<ResponseEntity<?>> action) {
+        String storeKey = scope + '\n' + key;
+        Entry entry;
+        boolean owner = false;
+        synchronized (this) {
+            evictExpired();
+            entry = entries.get(storeKey);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(storeKey, entry);
+                owner = true;
+                evictOverCapacity();
+            }
+        }
+
+        if (!owner) {
+            ResponseEntity<?> original = await(entry);
+            if (original == null) {
+                logger.debug("Original request for key {} still running after {} ms", key, waitMillis);
+                return new ResponseEntity<>(new MessageResponse(
+                        "A request with this Idempotency-Key is still being processed. Retry it later."), HttpStatus.CONFLICT);
+            }
+            logger.debug("Replaying idempotent response for key {}", key);
+            return replay(original);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            forget(storeKey, entry);
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            forget(storeKey, entry);
+        }
+        entry.response.complete(response);
+        return response;
+    }
+
+    // Null if the original request has not finished within the wait.
+    private ResponseEntity<?> await(Entry entry) {
+        try {
+            return entry.response.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Original request failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static ResponseEntity<?> replay(ResponseEntity<?> original) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(original.getHeaders());
+        headers.set(REPLAYED_HEADER, "true");
+        return new ResponseEntity<>(original.getBody(), headers, original.getStatusCode());
+    }
+
+    private synchronized void forget(String storeKey, Entry entry) {
+        entries.remove(storeKey, entry);
+    }
+
+    // Callers must hold the monitor.
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry next = iterator.next();
+            if (next.createdAt > cutoff) {
+                break;
+            }
+            if (next.response.isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Callers must hold the monitor. In-flight entries are kept so their duplicates still coalesce.
+    private void evictOverCapacity() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        int excess = entries.size() - maxEntries;
+        while (excess > 0 && iterator.hasNext()) {
+            if (iterator.next().response.isDone()) {
+                iterator.remove();
+                excess--;
+            }
+        }
+    }
+}
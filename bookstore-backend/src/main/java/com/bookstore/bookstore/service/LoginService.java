@@ -0,0 +1,136 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.exception.LoginCapacityExceededException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifies login passwords on a small dedicated pool, so a burst of logins, each costing a BCrypt
+ * hash, cannot take over the request threads that serve the rest of the API.
+ * At most {@code auth.login.threads} hashes run at once and {@code auth.login.queue-capacity} logins
+ * wait; further logins are rejected at once, as is a login that waited longer than
+ * {@code auth.login.max-queue-wait-ms}, since its client has likely given up.
+ */
+@Service
+public class LoginService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginService.class);
+
+    private final AuthenticationManager authenticationManager;
+    private final ThreadPoolExecutor executor;
+    private final long maxQueueWaitMillis;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expiredInQueue = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong queueWaitTotalMicros = new AtomicLong();
+    private final AtomicLong queueWaitMaxMicros = new AtomicLong();
+    private final AtomicLong hashTotalMicros = new AtomicLong();
+    private final AtomicLong hashMaxMicros = new AtomicLong();
+
+    public LoginService(AuthenticationManager authenticationManager,
+                        @Value("${auth.login.threads:2}") int threads,
+                        @Value("${auth.login.queue-capacity:100}") int queueCapacity,
+                        @Value("${auth.login.max-queue-wait-ms:5000}") long maxQueueWaitMillis) {
+        this.authenticationManager = authenticationManager;
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues the verification of {@code username}/{@code password}. The future completes with the
+     * authenticated {@link Authentication}, or fails with the {@link org.springframework.security.core.AuthenticationException}
+     * of a rejected login, or with {@link LoginCapacityExceededException} if the login waited too long.
+     * @throws LoginCapacityExceededException if the queue is full.
+     */
+    public CompletableFuture<Authentication> authenticate(String username, String password) {
+        long queuedAt = System.nanoTime();
+        CompletableFuture<Authentication> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> verify(username, password, queuedAt, result));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            logger.warn("Login queue is full, rejecting login of {}", username);
+            throw new LoginCapacityExceededException("Too many logins in progress, please retry shortly.");
+        }
+        submitted.incrementAndGet();
+        return result;
+    }
+
+    private void verify(String username, String password, long queuedAt, CompletableFuture<Authentication> result) {
+        long startedAt = System.nanoTime();
+        long waitMicros = (startedAt - queuedAt) / 1_000;
+        record(waitMicros, queueWaitTotalMicros, queueWaitMaxMicros);
+        if (waitMicros > maxQueueWaitMillis * 1_000) {
+            expiredInQueue.incrementAndGet();
+            result.completeExceptionally(new LoginCapacityExceededException("Login timed out in the queue, please retry."));
+            return;
+        }
+        try {
+            Authentication authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(username, password));
+            succeeded.incrementAndGet();
+            result.complete(authentication);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            result.completeExceptionally(e);
+        } finally {
+            record((System.nanoTime() - startedAt) / 1_000, hashTotalMicros, hashMaxMicros);
+        }
+    }
+
+    private static void record(long micros, AtomicLong total, AtomicLong max) {
+        total.addAndGet(micros);
+        max.accumulateAndGet(micros, Math::max);
+    }
+
+    /** Login counts, queue state, and time spent queued and verifying, for the admin stats endpoint. */
+    public Map<String, Long> stats() {
+        long started = succeeded.get() + failed.get();
+        long dequeued = started + expiredInQueue.get();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("submitted", submitted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("expiredInQueue", expiredInQueue.get());
+        stats.put("succeeded", succeeded.get());
+        stats.put("failed", failed.get());
+        stats.put("queueDepth", (long) executor.getQueue().size());
+        stats.put("activeThreads", (long) executor.getActiveCount());
+        stats.put("queueWaitAvgMicros", dequeued == 0 ? 0 : queueWaitTotalMicros.get() / dequeued);
+        stats.put("queueWaitMaxMicros", queueWaitMaxMicros.get());
+        stats.put("hashAvgMicros", started == 0 ? 0 : hashTotalMicros.get() / started);
+        stats.put("hashMaxMicros", hashMaxMicros.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,48 @@
+package com.bookstore.bookstore.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for a user's order history, which is ordered newest first.
+ * Encodes the order date and id of the last order on the previous page.
+ */
+public final class OrderPageCursor {
+
+    private final LocalDateTime lastOrderDate;
+    private final Long lastId;
+
+    public OrderPageCursor(LocalDateTime lastOrderDate, Long lastId) {
+        this.lastOrderDate = lastOrderDate;
+        this.lastId = lastId;
+    }
+
+    public LocalDateTime getLastOrderDate() {
+        return lastOrderDate;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public String encode() {
+        String raw = lastId + ":" + lastOrderDate;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     * @throws IllegalArgumentException if the token is malformed.
+     */
+    public static OrderPageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 2);
+            return new OrderPageCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[0]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page cursor.");
+        }
+    }
+}
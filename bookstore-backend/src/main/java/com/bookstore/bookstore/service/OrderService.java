@@ -1,5 +1,6 @@
 package com.bookstore.bookstore.service;
 
+import com.bookstore.bookstore.exception.InsufficientStockException;
 import com.bookstore.bookstore.exception.ResourceNotFoundException;
 import com.bookstore.bookstore.model.Book;
 import com.bookstore.bookstore.model.CartItem;
@@ -7,17 +8,27 @@ import com.bookstore.bookstore.model.Order;
 import com.bookstore.bookstore.model.Order.OrderStatus;
 import com.bookstore.bookstore.model.OrderItem;
 import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.payload.response.OrderPageResponse;
+import com.bookstore.bookstore.payload.response.OrderResponse;
 import com.bookstore.bookstore.repository.BookRepository;
 import com.bookstore.bookstore.repository.OrderRepository;
 import com.bookstore.bookstore.repository.OrderItemRepository; 
 import com.bookstore.bookstore.repository.UserRepository;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
@@ -32,17 +43,51 @@ public class OrderService {
     private UserRepository userRepository;
     @Autowired
     private CartService cartService; 
+    @Autowired
+    private ResourceVersionTracker versionTracker;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private BookSuggestIndex suggestIndex;
+
+    @Value("${orders.page.default-size:10}")
+    private int defaultPageSize;
+
+    @Value("${orders.page.max-size:50}")
+    private int maxPageSize;
 
+    /**
+     * Turns the user's cart into an order and takes the ordered stock, in one transaction.
+     * @throws InsufficientStockException if any cart line exceeds the available stock; nothing is written.
+     */
     @Transactional
     public Order placeOrder(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        return placeOrder(findUser(username));
+    }
+
+    /** As {@link #placeOrder(String)}, for a user the caller already holds, such as the authenticated principal's. */
+    @Transactional
+    public Order placeOrder(User user) {
         List<CartItem> cartItems = cartService.getUserCart(user);
 
         if (cartItems.isEmpty()) {
             throw new IllegalStateException("Cannot place an order with an empty cart.");
         }
 
+        // Fail fast on the stock read with the cart, before any write or row lock.
+        Map<Long, Integer> reservation = new HashMap<>();
+        for (CartItem cartItem : cartItems) {
+            if (cartItem.getBook() != null) {
+                reservation.merge(cartItem.getBook().getId(), cartItem.getQuantity(), Integer::sum);
+            }
+        }
+        for (CartItem cartItem : cartItems) {
+            Book book = cartItem.getBook();
+            if (book != null && reservation.get(book.getId()) > book.getQuantity()) {
+                throw new InsufficientStockException(book.getId());
+            }
+        }
+
         BigDecimal totalOrderPrice = BigDecimal.ZERO;
 
         Order order = new Order();
@@ -65,25 +110,75 @@ public class OrderService {
         order.setTotalAmount(totalOrderPrice);
         Order savedOrder = orderRepository.save(order);
         cartService.clearCart(user);
+        // Last write of the checkout, so the book rows stay locked only until commit.
+        stockService.reserve(reservation);
+        AfterCommit.run(() -> suggestIndex.recordSales(reservation));
+        versionTracker.bumpOrders(user.getUsername());
         return savedOrder;
     }
 
     @Transactional(readOnly = true)
     public List<Order> getUserOrders(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        return getUserOrders(findUser(username));
+    }
 
-        List<Order> orders = orderRepository.findByUser(user);
+    @Transactional(readOnly = true)
+    public List<Order> getUserOrders(User user) {
+        List<Order> orders = orderRepository.findByUserOrderByOrderDateDescIdDesc(user);
         return orders;
     }
 
+    /**
+     * One keyset page of the user's order history, newest first. Costs three queries whatever the
+     * page size: the user, the page's order ids, and the orders with their items and books; the
+     * {@link User} overload skips the first.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param size Requested page size; clamped to [1, orders.page.max-size].
+     * @throws IllegalArgumentException if the cursor is invalid.
+     */
+    @Transactional(readOnly = true)
+    public OrderPageResponse getUserOrderPage(String username, String cursor, Integer size) {
+        return getUserOrderPage(findUser(username), cursor, size);
+    }
+
+    @Transactional(readOnly = true)
+    public OrderPageResponse getUserOrderPage(User user, String cursor, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        OrderPageCursor after = (cursor == null || cursor.isBlank()) ? null : OrderPageCursor.decode(cursor);
+        // Fetch one extra id to learn whether another page exists without a COUNT query.
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<Long> ids = after == null
+                ? orderRepository.findRecentIdsByUser(user, limit)
+                : orderRepository.findIdsByUserBefore(user, after.getLastOrderDate(), after.getLastId(), limit);
+        boolean hasMore = ids.size() > pageSize;
+        List<Long> pageIds = hasMore ? ids.subList(0, pageSize) : ids;
+
+        List<Order> orders = pageIds.isEmpty() ? new ArrayList<>() : orderRepository.findWithItemsByIdIn(pageIds);
+        orders.sort(Comparator.comparing(Order::getOrderDate).thenComparing(Order::getId).reversed());
+        String nextCursor = null;
+        if (hasMore && !orders.isEmpty()) {
+            Order last = orders.get(orders.size() - 1);
+            nextCursor = new OrderPageCursor(last.getOrderDate(), last.getId()).encode();
+        }
+        List<OrderResponse> items = orders.stream().map(OrderResponse::new).collect(Collectors.toList());
+        return new OrderPageResponse(items, nextCursor, hasMore);
+    }
+
     @Transactional(readOnly = true)
     public Order getOrderById(String username, Long orderId) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        return getOrderById(findUser(username), orderId);
+    }
 
+    @Transactional(readOnly = true)
+    public Order getOrderById(User user, Long orderId) {
         Order order = orderRepository.findByIdAndUser(orderId, user)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found with ID: " + orderId + " or not belonging to user."));
         return order;
     }
-}
\ No newline at end of file
+
+    private User findUser(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+    }
+}
@@ -0,0 +1,120 @@
+package com.bookstore.bookstore.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Authenticated principals by username, so an authenticated request does not read the user row.
+ * Entries expire {@code auth.principal-cache.ttl-seconds} after they were loaded, which bounds how
+ * long a change made outside {@link UserService} can go unnoticed; the cache holds at most
+ * {@code auth.principal-cache.max-entries} principals, dropping the oldest first.
+ * {@link UserService} invalidates a user's entry when it updates or deletes the user.
+ */
+@Component
+public class PrincipalCache {
+
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    // Insertion order doubles as expiry order, since every entry gets the same TTL.
+    private final LinkedHashMap<String, Entry> byUsername = new LinkedHashMap<>();
+    private final Map<Long, String> usernamesById = new HashMap<>();
+    private long generation;
+
+    private static final class Entry {
+        final AuthenticatedUser principal;
+        final long loadedAt = System.currentTimeMillis();
+
+        Entry(AuthenticatedUser principal) {
+            this.principal = principal;
+        }
+    }
+
+    public PrincipalCache(@Value("${auth.principal-cache.ttl-seconds:300}") long ttlSeconds,
+                          @Value("${auth.principal-cache.max-entries:10000}") int maxEntries) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+    }
+
+    /** The cached principal of {@code username}, or null if it is not cached or has expired. */
+    public synchronized AuthenticatedUser get(String username) {
+        evictExpired();
+        Entry entry = byUsername.get(username);
+        return entry == null ? null : entry.principal;
+    }
+
+    /**
+     * Read before loading a principal and pass it to {@link #put}, so a load that raced with an
+     * invalidation is not cached.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void put(AuthenticatedUser principal, long loadedGeneration) {
+        if (loadedGeneration != generation || maxEntries <= 0) {
+            return;
+        }
+        remove(principal.getUsername());
+        byUsername.put(principal.getUsername(), new Entry(principal));
+        usernamesById.put(principal.getId(), principal.getUsername());
+        Iterator<Entry> iterator = byUsername.values().iterator();
+        while (byUsername.size() > maxEntries && iterator.hasNext()) {
+            usernamesById.remove(iterator.next().principal.getId());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Drops the user's entry now and again once the surrounding transaction, if any, has completed,
+     * so a request that reads the row before the change commits cannot cache the old values.
+     */
+    public void invalidate(Long userId) {
+        invalidateNow(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateNow(userId);
+                }
+            });
+        }
+    }
+
+    private synchronized void invalidateNow(Long userId) {
+        generation++;
+        String username = usernamesById.get(userId);
+        if (username != null) {
+            remove(username);
+        }
+    }
+
+    // Callers must hold the monitor.
+    private void remove(String username) {
+        Entry removed = byUsername.remove(username);
+        if (removed != null) {
+            usernamesById.remove(removed.principal.getId());
+        }
+    }
+
+    // Callers must hold the monitor.
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        Iterator<Entry> iterator = byUsername.values().iterator();
+        while (iterator.hasNext()) {
+            Entry next = iterator.next();
+            if (next.loadedAt > cutoff) {
+                break;
+            }
+            usernamesById.remove(next.principal.getId());
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.bookstore.bookstore.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version counters used to build strong ETags without reading the database.
+ * Counters are bumped after the mutating transaction commits, so a reader can never pair a new
+ * version with data that is not yet visible. The boot epoch keeps tags unique across restarts.
+ */
+@Component
+public class ResourceVersionTracker {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final Map<String, Long> cartVersions = new ConcurrentHashMap<>();
+    private final Map<String, Long> orderVersions = new ConcurrentHashMap<>();
+
+    public void bumpCatalog() {
+        AfterCommit.run(catalogVersion::incrementAndGet);
+    }
+
+    public void bumpCart(String username) {
+        AfterCommit.run(() -> cartVersions.merge(username, 1L, Long::sum));
+    }
+
+    public void bumpOrders(String username) {
+        AfterCommit.run(() -> orderVersions.merge(username, 1L, Long::sum));
+    }
+
+    public String catalogEtag() {
+        return "\"c-" + epoch + "-" + catalogVersion.get() + "\"";
+    }
+
+    // Cart and order responses embed live book fields, so their tags also carry the catalog version.
+    public String cartEtag(String username) {
+        return "\"cart-" + epoch + "-" + cartVersions.getOrDefault(username, 0L) + "-" + catalogVersion.get() + "\"";
+    }
+
+    public String ordersEtag(String username) {
+        return "\"o-" + epoch + "-" + orderVersions.getOrDefault(username, 0L) + "-" + catalogVersion.get() + "\"";
+    }
+}
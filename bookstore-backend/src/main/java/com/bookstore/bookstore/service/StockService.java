@@ -0,0 +1,123 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.exception.InsufficientStockException;
+import com.bookstore.bookstore.exception.ResourceNotFoundException;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.payload.response.StockLevel;
+import com.bookstore.bookstore.repository.BookRepository;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Stock adjustments as conditional single-statement UPDATEs, so concurrent writers never lose an
+ * update and never drive a quantity below zero, without taking read locks or version checks.
+ */
+@Service
+public class StockService {
+
+    private final BookRepository bookRepository;
+    private final BookFacetIndex facetIndex;
+    private final CatalogResponseCache responseCache;
+    private final ResourceVersionTracker versionTracker;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public StockService(BookRepository bookRepository, BookFacetIndex facetIndex,
+                        CatalogResponseCache responseCache, ResourceVersionTracker versionTracker,
+                        EntityManagerFactory entityManagerFactory) {
+        this.bookRepository = bookRepository;
+        this.facetIndex = facetIndex;
+        this.responseCache = responseCache;
+        this.versionTracker = versionTracker;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Adds {@code delta} (possibly negative) to one book's stock.
+     * @return The stock level after the change.
+     * @throws ResourceNotFoundException if the book does not exist.
+     * @throws InsufficientStockException if the change would make the quantity negative.
+     */
+    @Transactional
+    public StockLevel adjust(Long bookId, int delta) {
+        return adjustAll(Map.of(bookId, delta)).get(0);
+    }
+
+    /**
+     * Applies every delta in one transaction, all or nothing. Rows are updated in ascending id
+     * order so concurrent bulk adjustments lock them in the same order and cannot deadlock.
+     * @return The stock levels after the change, ordered by book id.
+     * @throws ResourceNotFoundException if a book does not exist; nothing is applied.
+     * @throws InsufficientStockException if a change would make a quantity negative; nothing is applied.
+     */
+    @Transactional
+    public List<StockLevel> adjustAll(Map<Long, Integer> deltas) {
+        Map<Long, Integer> ordered = new TreeMap<>(deltas);
+        evictCachedBooks(ordered.keySet());
+        for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+            Long bookId = entry.getKey();
+            if (bookRepository.adjustQuantity(bookId, entry.getValue()) == 0) {
+                if (!bookRepository.existsById(bookId)) {
+                    throw new ResourceNotFoundException("Book with ID " + bookId + " not found.");
+                }
+                throw new InsufficientStockException(bookId);
+            }
+        }
+        // Our UPDATEs hold the row locks until commit, so these reads are the committed result.
+        List<BookSummary> updated = new ArrayList<>(bookRepository.findSummariesByIdIn(ordered.keySet()));
+        updated.sort(Comparator.comparing(BookSummary::getId));
+        AfterCommit.run(() -> {
+            updated.forEach(facetIndex::index);
+            responseCache.invalidateBooks(ordered.keySet());
+        });
+        versionTracker.bumpCatalog();
+        return updated.stream()
+                .map(book -> new StockLevel(book.getId(), book.getQuantity()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Takes stock for every line of a checkout, all or nothing, inside the caller's transaction.
+     * The row locks are held until that transaction ends, so callers should reserve as their last
+     * write to keep hot titles locked for as short a time as possible.
+     * @param quantities Book id to the number of units to take.
+     * @throws InsufficientStockException if any line cannot be covered; nothing is taken.
+     */
+    @Transactional
+    public List<StockLevel> reserve(Map<Long, Integer> quantities) {
+        Map<Long, Integer> deltas = new TreeMap<>();
+        quantities.forEach((bookId, quantity) -> deltas.put(bookId, -quantity));
+        return adjustAll(deltas);
+    }
+
+    /**
+     * The stock UPDATE bypasses the second-level cache, so the books it changes are evicted from it
+     * now and again when the transaction ends, whether it commits or not: a read in between could
+     * have cached a quantity that is about to change or be rolled back.
+     */
+    private void evictCachedBooks(Collection<Long> bookIds) {
+        Cache cache = entityManagerFactory.getCache();
+        Runnable evict = () -> bookIds.forEach(bookId -> cache.evict(Book.class, bookId));
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.config.ReadWriteRoutingDataSource;
+import com.bookstore.bookstore.model.RevokedToken;
+import com.bookstore.bookstore.model.TokenCutoff;
+import com.bookstore.bookstore.repository.RevokedTokenRepository;
+import com.bookstore.bookstore.repository.TokenCutoffRepository;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revokes JWTs before they expire: one token by its id ({@code jti}), or every token of a user
+ * issued before a cutoff. Revocations are stored in the database; the check every authenticated
+ * request makes is answered from memory:
+ * <ul>
+ *   <li>the per-user cutoffs, a small exact map, since only users who logged out everywhere have one;</li>
+ *   <li>a Bloom filter of revoked token ids. Most tokens miss it and are accepted without a query;
+ *       a hit is confirmed in the database, and confirmed ids are remembered in a small exact set
+ *       so a revoked token that keeps coming back does not cost a query each time.</li>
+ * </ul>
+ * Both are rebuilt from the database on startup and every {@code auth.revocation.rebuild-interval-ms},
+ * which also drops revocations of tokens that have expired since and picks up revocations made by
+ * other instances.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final TokenCutoffRepository tokenCutoffRepository;
+    private final long tokenLifetimeMillis;
+    private final int expectedTokens;
+    private final double falsePositiveRate;
+    private final int confirmedCacheSize;
+
+    private volatile BloomFilter revokedIds;
+    private volatile Map<String, Long> cutoffs = new ConcurrentHashMap<>();
+    // Access order, so the least recently presented revoked token is forgotten first.
+    private final LinkedHashMap<String, Boolean> confirmedRevoked = new LinkedHashMap<>(16, 0.75f, true);
+    private long filterInsertions;
+    private long lastRebuildAt;
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong filterHits = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  TokenCutoffRepository tokenCutoffRepository,
+                                  @Value("${jwt.expiration:36000000}") long tokenLifetimeMillis,
+                                  @Value("${auth.revocation.expected-tokens:100000}") int expectedTokens,
+                                  @Value("${auth.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${auth.revocation.confirmed-cache-size:1000}") int confirmedCacheSize) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.tokenCutoffRepository = tokenCutoffRepository;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        this.expectedTokens = expectedTokens;
+        this.falsePositiveRate = falsePositiveRate;
+        this.confirmedCacheSize = confirmedCacheSize;
+        this.revokedIds = new BloomFilter(expectedTokens, falsePositiveRate);
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${auth.revocation.rebuild-interval-ms:3600000}",
+               fixedDelayString = "${auth.revocation.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Whether verified {@code claims} belong to a revoked token. A token issued in the same second
+     * as its user's cutoff counts as revoked, since token issue times only have second precision.
+     */
+    public boolean isRevoked(Claims claims) {
+        checks.incrementAndGet();
+        Long cutoff = cutoffs.get(claims.getSubject());
+        if (cutoff != null && (claims.getIssuedAt() == null || claims.getIssuedAt().getTime() < cutoff)) {
+            rejected.incrementAndGet();
+            return true;
+        }
+        String jti = claims.getId();
+        if (jti == null || !revokedIds.mightContain(jti)) {
+            return false;
+        }
+        filterHits.incrementAndGet();
+        synchronized (confirmedRevoked) {
+            if (confirmedRevoked.get(jti) != null) {
+                rejected.incrementAndGet();
+                return true;
+            }
+        }
+        if (!revokedTokenRepository.existsByJti(jti)) {
+            falsePositives.incrementAndGet();
+            return false;
+        }
+        rememberConfirmed(jti);
+        rejected.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Revokes the token of {@code claims}. Tokens issued before token ids were added have none; for
+     * those every token of the user is revoked instead, which is the only way to reach them.
+     */
+    public synchronized void revoke(Claims claims) {
+        String jti = claims.getId();
+        if (jti == null) {
+            revokeAll(claims.getSubject());
+            return;
+        }
+        if (!revokedTokenRepository.existsByJti(jti)) {
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime expiresAt = claims.getExpiration() == null
+                        ? now.plus(Duration.ofMillis(tokenLifetimeMillis)) : toLocalDateTime(claims.getExpiration());
+                revokedTokenRepository.save(new RevokedToken(null, jti, claims.getSubject(), expiresAt, now));
+            } catch (DataIntegrityViolationException e) {
+                logger.debug("Token {} was revoked concurrently", jti);
+            }
+        }
+        revokedIds.add(jti);
+        filterInsertions++;
+        rememberConfirmed(jti);
+        logger.info("Revoked token {} of user {}", jti, claims.getSubject());
+    }
+
+    /** Revokes every token of {@code username} issued until now. */
+    public synchronized void revokeAll(String username) {
+        LocalDateTime now = LocalDateTime.now();
+        tokenCutoffRepository.save(new TokenCutoff(username, now));
+        cutoffs.put(username, toEpochMillis(now));
+        logger.info("Revoked all tokens of user {} issued before {}", username, now);
+    }
+
+    /**
+     * Reloads the Bloom filter and cutoffs from the database after deleting revocations that no
+     * longer matter. Revocations wait while it runs; the request-time check does not.
+     */
+    public synchronized void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        revokedTokenRepository.deleteExpired(now);
+        tokenCutoffRepository.deleteOlderThan(now.minus(Duration.ofMillis(tokenLifetimeMillis)));
+
+        // Read from the primary, so a revocation a replica has not received yet is not dropped.
+        List<String> jtis = ReadWriteRoutingDataSource.readFromPrimary(() -> revokedTokenRepository.findUnexpiredJtis(now));
+        // Room for twice the current revocations, so the false-positive rate holds until the next rebuild.
+        BloomFilter filter = new BloomFilter((int) Math.min(Integer.MAX_VALUE, Math.max(expectedTokens, 2L * jtis.size())),
+                falsePositiveRate);
+        jtis.forEach(filter::add);
+        Map<String, Long> loadedCutoffs = new ConcurrentHashMap<>();
+        for (TokenCutoff cutoff : ReadWriteRoutingDataSource.readFromPrimary(tokenCutoffRepository::findAll)) {
+            loadedCutoffs.put(cutoff.getUsername(), toEpochMillis(cutoff.getNotBefore()));
+        }
+
+        revokedIds = filter;
+        cutoffs = loadedCutoffs;
+        filterInsertions = jtis.size();
+        synchronized (confirmedRevoked) {
+            confirmedRevoked.clear();
+        }
+        lastRebuildAt = System.currentTimeMillis();
+        logger.info("Loaded {} revoked tokens and {} user cutoffs", jtis.size(), loadedCutoffs.size());
+    }
+
+    /** Check counts and filter state, for the admin stats endpoint. */
+    public synchronized Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("checks", checks.get());
+        stats.put("filterHits", filterHits.get());
+        stats.put("falsePositives", falsePositives.get());
+        stats.put("rejected", rejected.get());
+        stats.put("revokedTokens", filterInsertions);
+        stats.put("userCutoffs", (long) cutoffs.size());
+        stats.put("filterBits", revokedIds.bitCount());
+        stats.put("lastRebuildAt", lastRebuildAt);
+        return stats;
+    }
+
+    private void rememberConfirmed(String jti) {
+        synchronized (confirmedRevoked) {
+            confirmedRevoked.put(jti, Boolean.TRUE);
+            if (confirmedRevoked.size() > confirmedCacheSize) {
+                confirmedRevoked.remove(confirmedRevoked.keySet().iterator().next());
+            }
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,62 @@
+package com.bookstore.bookstore.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for the user directory, which is ordered by the searched field.
+ * Encodes that field and its value on the last user of the previous page; both username and
+ * email are unique, so the value alone positions the next page.
+ */
+public final class UserPageCursor {
+
+    public enum Field {
+        USERNAME, EMAIL;
+
+        public static Field from(String value) {
+            if (value == null || value.isBlank()) {
+                return USERNAME;
+            }
+            try {
+                return Field.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported search field: " + value);
+            }
+        }
+    }
+
+    private final Field field;
+    private final String lastValue;
+
+    public UserPageCursor(Field field, String lastValue) {
+        this.field = field;
+        this.lastValue = lastValue;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getLastValue() {
+        return lastValue;
+    }
+
+    public String encode() {
+        String raw = field.name() + ":" + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     * @throws IllegalArgumentException if the token is malformed.
+     */
+    public static UserPageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 2);
+            return new UserPageCursor(Field.valueOf(parts[0]), parts[1]);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid page cursor.");
+        }
+    }
+}
@@ -1,27 +1,86 @@
 package com.bookstore.bookstore.service;
 
 import com.bookstore.bookstore.model.User; 
+import com.bookstore.bookstore.model.UserSummary;
+import com.bookstore.bookstore.payload.response.UserPageResponse;
+import com.bookstore.bookstore.payload.response.UserResponse;
 import com.bookstore.bookstore.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Service
-public class UserService {
+public class UserService implements UserDetailsPasswordService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+
+    @Value("${users.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${users.page.max-size:100}")
+    private int maxPageSize;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, PrincipalCache principalCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    /**
+     * One keyset page of the user directory, ordered by {@code field}, optionally narrowed to users
+     * whose {@code field} starts with {@code prefix} (case-sensitive). One query whatever the page.
+     * @param field username (default) or email; must match the cursor's field.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param size Requested page size; clamped to [1, users.page.max-size].
+     * @throws IllegalArgumentException if the field or cursor is invalid.
+     */
+    public UserPageResponse getUserPage(String prefix, String field, String cursor, Integer size) {
+        UserPageCursor.Field searchField = UserPageCursor.Field.from(field);
+        UserPageCursor after = (cursor == null || cursor.isBlank()) ? null : UserPageCursor.decode(cursor);
+        if (after != null && after.getField() != searchField) {
+            throw new IllegalArgumentException("Page cursor belongs to a search on " + after.getField().name().toLowerCase() + ".");
+        }
+        String startsWith = prefix == null ? "" : prefix;
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        // Fetch one extra row to learn whether another page exists without a COUNT query.
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<UserSummary> rows;
+        if (searchField == UserPageCursor.Field.EMAIL) {
+            rows = after == null
+                    ? userRepository.findByEmailStartingWithOrderByEmailAsc(startsWith, limit)
+                    : userRepository.findByEmailStartingWithAndEmailGreaterThanOrderByEmailAsc(startsWith, after.getLastValue(), limit);
+        } else {
+            rows = after == null
+                    ? userRepository.findByUsernameStartingWithOrderByUsernameAsc(startsWith, limit)
+                    : userRepository.findByUsernameStartingWithAndUsernameGreaterThanOrderByUsernameAsc(startsWith, after.getLastValue(), limit);
+        }
+        boolean hasMore = rows.size() > pageSize;
+        List<UserSummary> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            UserSummary last = page.get(page.size() - 1);
+            String lastValue = searchField == UserPageCursor.Field.EMAIL ? last.getEmail() : last.getUsername();
+            nextCursor = new UserPageCursor(searchField, lastValue).encode();
+        }
+        List<UserResponse> items = page.stream().map(UserResponse::new).collect(Collectors.toList());
+        return new UserPageResponse(items, nextCursor, hasMore);
     }
 
     public Optional<User> getUserById(Long id) {
@@ -59,7 +118,10 @@ public class UserService {
             if (updatedUser.getRole() != null && !updatedUser.getRole().isEmpty()) {
                 existingUser.setRole(updatedUser.getRole());
             }
-            return userRepository.save(existingUser);
+            User saved = userRepository.save(existingUser);
+            // Authenticated requests must see the new username, password and role.
+            principalCache.invalidate(id);
+            return saved;
         } else {
             throw new RuntimeException("User with ID " + id + " not found.");
         }
@@ -67,6 +129,22 @@ public class UserService {
 
     public void deleteUser(Long id) {
         userRepository.deleteById(id);
+        principalCache.invalidate(id);
+    }
+
+    /**
+     * Stores a hash the login just computed with the current work factor, replacing a weaker one.
+     * Called by the authentication provider after a successful login, with the password already encoded.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails principal, String encodedPassword) {
+        User user = userRepository.findByUsername(principal.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + principal.getUsername()));
+        user.setPassword(encodedPassword);
+        User saved = userRepository.save(user);
+        principalCache.invalidate(saved.getId());
+        logger.info("Rehashed the password of user {} with the current work factor", saved.getUsername());
+        return new AuthenticatedUser(saved);
     }
 
     public boolean authenticate(String username, String rawPassword) {
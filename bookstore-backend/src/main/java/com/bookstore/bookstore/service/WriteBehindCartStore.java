@@ -0,0 +1,693 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.config.ReadWriteRoutingDataSource;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.model.CartItem;
+import com.bookstore.bookstore.model.CartTotals;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.CartItemRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Optional write-behind home for carts, enabled with {@code cart.store.mode=write-behind}.
+ * <p>
+ * Carts live in a map sharded by user id. Mutations change memory only, after being appended to a
+ * {@link CartJournal}. Every {@code cart.store.flush-interval-ms} the changed lines are written to
+ * {@code cart_items} in one transaction. Repeated changes to a line between two flushes cost one
+ * row write. Once the flush commits, the journal segments it covered are deleted. On startup,
+ * segments left by a crash are replayed into the database before the store is used.
+ * <p>
+ * Lines not yet inserted have no row id. They are exposed with the negated book id as their cart
+ * item id, which keeps resolving to the same line after it is flushed.
+ * <p>
+ * In the default {@code write-through} mode the store is inert and {@link CartService} works
+ * directly on the database.
+ */
+@Component
+public class WriteBehindCartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+    public static final String WRITE_THROUGH = "write-through";
+    public static final String WRITE_BEHIND = "write-behind";
+
+    private final CartItemRepository cartItemRepository;
+    private final BookRepository bookRepository;
+    private final UserRepository userRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final boolean enabled;
+    private final CartJournal journal;
+    private final Shard[] shards;
+    private final long idleEvictMillis;
+
+    // Held from the start of a flush's transaction until it commits, so a cart cleared in the
+    // database never races a flush that is still writing its old lines.
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Lets an idle flush return without opening a transaction.
+    private final AtomicLong mutations = new AtomicLong();
+    private volatile long flushedMutations;
+
+    private static final class Line {
+        final long bookId;
+        Long rowId;
+        int quantity;
+        boolean dirty;
+
+        Line(long bookId, Long rowId, int quantity) {
+            this.bookId = bookId;
+            this.rowId = rowId;
+            this.quantity = quantity;
+        }
+
+        long publicId() {
+            return rowId != null ? rowId : -bookId;
+        }
+
+        boolean matches(Long cartItemId) {
+            return quantity > 0 && (cartItemId.equals(rowId) || cartItemId == -bookId);
+        }
+    }
+
+    private static final class UserCart {
+        final long userId;
+        // Lines with quantity 0 are removals waiting for the next flush; reads skip them.
+        final LinkedHashMap<Long, Line> lines = new LinkedHashMap<>();
+        long lastAccess = System.currentTimeMillis();
+        // Set while the transaction that cleared this cart is open: flushes leave it alone, since
+        // its rows are still being deleted, and keep the journal that recovery would need.
+        boolean clearing;
+
+        UserCart(long userId) {
+            this.userId = userId;
+        }
+
+        boolean isDirty() {
+            return lines.values().stream().anyMatch(line -> line.dirty);
+        }
+    }
+
+    private static final class Shard {
+        final Map<Long, UserCart> carts = new HashMap<>();
+        // Bumped whenever carts leave the shard, so a load that read the database before that
+        // knows its rows may be stale.
+        long removals;
+    }
+
+    // A dirty line captured by a flush, with the values it is written with.
+    private static final class Pending {
+        final UserCart cart;
+        final Line line;
+        final Long rowId;
+        final int quantity;
+        Long insertedRowId;
+        boolean orphaned;
+
+        Pending(UserCart cart, Line line) {
+            this.cart = cart;
+            this.line = line;
+            this.rowId = line.rowId;
+            this.quantity = line.quantity;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Totals implements CartTotals {
+        private final BigDecimal total;
+        private final long lineCount;
+        private final long itemCount;
+    }
+
+    public WriteBehindCartStore(CartItemRepository cartItemRepository, BookRepository bookRepository,
+                                UserRepository userRepository, PlatformTransactionManager transactionManager,
+                                @Value("${cart.store.mode:" + WRITE_THROUGH + "}") String mode,
+                                @Value("${cart.store.shards:16}") int shardCount,
+                                @Value("${cart.store.journal-dir:data/cart-journal}") String journalDir,
+                                @Value("${cart.store.journal-sync:false}") boolean journalSync,
+                                @Value("${cart.store.idle-evict-seconds:1800}") long idleEvictSeconds) {
+        if (!WRITE_THROUGH.equals(mode) && !WRITE_BEHIND.equals(mode)) {
+            throw new IllegalArgumentException("cart.store.mode must be " + WRITE_THROUGH + " or " + WRITE_BEHIND + ", was: " + mode);
+        }
+        this.cartItemRepository = cartItemRepository;
+        this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
+        this.transactionManager = transactionManager;
+        this.enabled = WRITE_BEHIND.equals(mode);
+        this.journal = new CartJournal(Paths.get(journalDir), journalSync);
+        this.shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        this.idleEvictMillis = idleEvictSeconds * 1000;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Whether the user's cart is currently held in memory, where the database may lag behind it. */
+    public boolean isCached(long userId) {
+        Shard shard = shardFor(userId);
+        synchronized (shard) {
+            return shard.carts.containsKey(userId);
+        }
+    }
+
+    /**
+     * Replays whatever a previous run left in the journal, whichever mode this run uses, so
+     * switching back to write-through after a crash loses nothing.
+     */
+    @PostConstruct
+    void recover() {
+        List<Path> segments = journal.existingSegments();
+        if (!segments.isEmpty()) {
+            replay(segments);
+        }
+        if (enabled) {
+            journal.open();
+            logger.info("Cart store running write-behind with {} shards", shards.length);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (enabled) {
+            journal.close(flush());
+        }
+    }
+
+    /** Adds {@code quantity} units of {@code book} to the user's cart. */
+    public CartItem add(User user, Book book, int quantity) {
+        return withCart(user, cart -> {
+            Line existing = cart.lines.get(book.getId());
+            int newQuantity = existing == null ? quantity : existing.quantity + quantity;
+            return toItem(set(cart, book.getId(), existing, newQuantity), user, book);
+        });
+    }
+
+    /**
+     * Sets the quantity of a line; 0 or less removes it.
+     * @return The updated line, or null if it was removed.
+     * @throws RuntimeException if the user's cart has no line with that id.
+     */
+    public CartItem update(User user, Long cartItemId, int newQuantity) {
+        long[] bookId = new long[1];
+        CartItem item = withCart(user, cart -> {
+            Line line = find(cart, cartItemId);
+            bookId[0] = line.bookId;
+            return toItem(set(cart, line.bookId, line, Math.max(0, newQuantity)), user, null);
+        });
+        if (newQuantity <= 0) {
+            return null;
+        }
+        item.setBook(bookRepository.findById(bookId[0])
+                .orElseThrow(() -> new RuntimeException("Book not found with ID: " + bookId[0])));
+        return item;
+    }
+
+    /** @throws RuntimeException if the user's cart has no line with that id. */
+    public void remove(User user, Long cartItemId) {
+        withCart(user, cart -> {
+            Line line = find(cart, cartItemId);
+            return set(cart, line.bookId, line, 0);
+        });
+    }
+
+    /**
+     * Applies a cart batch to the in-memory cart under its shard monitor, all or nothing.
+     * @throws RuntimeException if an operation is invalid; nothing is applied.
+     */
+    public void applyOperations(User user, List<CartOperation> operations) {
+        withCart(user, cart -> {
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            cart.lines.values().stream()
+                    .filter(line -> line.quantity > 0)
+                    .forEach(line -> quantities.put(line.bookId, line.quantity));
+            CartOperation.applyAll(operations, quantities, cartItemId -> {
+                Line line = lineFor(cart, cartItemId);
+                return line == null ? null : line.bookId;
+            });
+            for (Line line : new ArrayList<>(cart.lines.values())) {
+                int quantity = quantities.getOrDefault(line.bookId, 0);
+                if (line.quantity != quantity) {
+                    set(cart, line.bookId, line, quantity);
+                }
+            }
+            quantities.forEach((bookId, quantity) -> {
+                if (!cart.lines.containsKey(bookId)) {
+                    set(cart, bookId, null, quantity);
+                }
+            });
+            return null;
+        });
+    }
+
+    /** The user's cart with current book data, loaded with one query. */
+    public List<CartItem> getCart(User user) {
+        Map<Long, CartItem> lines = withCart(user, cart -> {
+            Map<Long, CartItem> snapshot = new LinkedHashMap<>();
+            cart.lines.values().stream()
+                    .filter(line -> line.quantity > 0)
+                    .forEach(line -> snapshot.put(line.bookId, toItem(line, user, null)));
+            return snapshot;
+        });
+        if (lines.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Book> books = bookRepository.findAllById(lines.keySet()).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<CartItem> items = new ArrayList<>(lines.size());
+        lines.forEach((bookId, item) -> {
+            Book book = books.get(bookId);
+            if (book != null) {
+                item.setBook(book);
+                items.add(item);
+            }
+        });
+        return items;
+    }
+
+    public CartTotals getTotals(User user) {
+        BigDecimal total = BigDecimal.ZERO;
+        long itemCount = 0;
+        List<CartItem> items = getCart(user);
+        for (CartItem item : items) {
+            total = total.add(item.getBook().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            itemCount += item.getQuantity();
+        }
+        return new Totals(total, items.size(), itemCount);
+    }
+
+    /**
+     * Empties the user's cart ahead of the caller deleting its rows in the current transaction.
+     * Pending changes are dropped rather than flushed, since the delete removes them anyway. The
+     * empty cart stays in memory, so reads meanwhile do not load the rows being deleted, and it is
+     * not flushed until the transaction ends. The clear is journaled once the transaction commits;
+     * if it rolls back, the old cart is put back and its pending changes are journaled again.
+     */
+    public void clear(User user) {
+        long userId = user.getId();
+        Shard shard = shardFor(userId);
+        UserCart removed;
+        UserCart emptied = new UserCart(userId);
+        emptied.clearing = true;
+        // Wait out a running flush, which could otherwise insert lines after our delete.
+        flushLock.lock();
+        try {
+            synchronized (shard) {
+                removed = shard.carts.put(userId, emptied);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            completeClear(emptied);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    completeClear(emptied);
+                } else {
+                    restore(emptied, removed);
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+            evictIdle();
+        }
+    }
+
+    /**
+     * Writes every pending change to the database in one transaction and deletes the journal
+     * segments it covered.
+     * @return Whether everything pending was written; on failure the changes stay pending.
+     */
+    public boolean flush() {
+        if (mutations.get() == flushedMutations) {
+            return true;
+        }
+        TransactionStatus status = transactionManager.getTransaction(
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        flushLock.lock();
+        List<Pending> pending = new ArrayList<>();
+        try {
+            long firstOpenSegment = journal.rotate();
+            long seenMutations = mutations.get();
+            boolean clearing = false;
+            for (Shard shard : shards) {
+                synchronized (shard) {
+                    for (UserCart cart : shard.carts.values()) {
+                        if (cart.clearing) {
+                            clearing = true;
+                            continue;
+                        }
+                        for (Line line : cart.lines.values()) {
+                            if (line.dirty) {
+                                line.dirty = false;
+                                pending.add(new Pending(cart, line));
+                            }
+                        }
+                    }
+                }
+            }
+            if (!pending.isEmpty()) {
+                write(pending);
+            }
+            transactionManager.commit(status);
+            complete(pending);
+            // Until an open clear commits or rolls back, recovery may still need the older records.
+            if (!clearing) {
+                journal.deleteSegmentsBefore(firstOpenSegment);
+                flushedMutations = seenMutations;
+            }
+            if (!pending.isEmpty()) {
+                logger.debug("Flushed {} cart line changes", pending.size());
+            }
+            return true;
+        } catch (RuntimeException e) {
+            if (!status.isCompleted()) {
+                transactionManager.rollback(status);
+            }
+            for (Pending change : pending) {
+                synchronized (shardFor(change.cart.userId)) {
+                    change.line.dirty = true;
+                }
+            }
+            logger.error("Cart flush failed, {} changes stay pending: {}", pending.size(), e.getMessage(), e);
+            return false;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Runs inside the flush transaction: one batched DELETE, one UPDATE per changed row, and
+    // batched INSERTs for new lines.
+    private void write(List<Pending> pending) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> deletes = new ArrayList<>();
+        List<Pending> inserts = new ArrayList<>();
+        for (Pending change : pending) {
+            if (change.quantity == 0) {
+                if (change.rowId != null) {
+                    deletes.add(change.rowId);
+                }
+            } else if (change.rowId == null || cartItemRepository.updateQuantity(change.rowId, change.quantity, now) == 0) {
+                // Never inserted, or the row vanished under us (the cart was checked out meanwhile).
+                inserts.add(change);
+            }
+        }
+        if (!deletes.isEmpty()) {
+            cartItemRepository.deleteAllByIdInBatch(deletes);
+        }
+        if (inserts.isEmpty()) {
+            return;
+        }
+        // A book or user deleted since the line was added would fail the whole batch on its foreign key.
+        Set<Long> existingBooks = bookRepository.findSummariesByIdIn(inserts.stream()
+                        .map(change -> change.line.bookId).collect(Collectors.toSet()))
+                .stream().map(BookSummary::getId).collect(Collectors.toSet());
+        Set<Long> existingUsers = userRepository.findAllById(inserts.stream()
+                        .map(change -> change.cart.userId).collect(Collectors.toSet()))
+                .stream().map(User::getId).collect(Collectors.toSet());
+        List<CartItem> rows = new ArrayList<>();
+        List<Pending> inserted = new ArrayList<>();
+        for (Pending change : inserts) {
+            if (!existingBooks.contains(change.line.bookId) || !existingUsers.contains(change.cart.userId)) {
+                change.orphaned = true;
+                continue;
+            }
+            rows.add(new CartItem(null, userRepository.getReferenceById(change.cart.userId),
+                    bookRepository.getReferenceById(change.line.bookId), change.quantity));
+            inserted.add(change);
+        }
+        List<CartItem> saved = cartItemRepository.saveAll(rows);
+        for (int i = 0; i < saved.size(); i++) {
+            inserted.get(i).insertedRowId = saved.get(i).getId();
+        }
+        cartItemRepository.flush();
+    }
+
+    // After commit: record new row ids and drop removals that are now in the database.
+    private void complete(List<Pending> pending) {
+        for (Pending change : pending) {
+            synchronized (shardFor(change.cart.userId)) {
+                Line line = change.line;
+                if (change.orphaned) {
+                    logger.warn("Dropping cart line of user {} for book {}: user or book was deleted", change.cart.userId, line.bookId);
+                    change.cart.lines.remove(line.bookId, line);
+                    continue;
+                }
+                if (change.quantity == 0) {
+                    line.rowId = null;
+                } else if (change.insertedRowId != null) {
+                    line.rowId = change.insertedRowId;
+                }
+                if (line.quantity == 0 && !line.dirty) {
+                    change.cart.lines.remove(line.bookId, line);
+                }
+            }
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleEvictMillis;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                if (shard.carts.values().removeIf(cart -> cart.lastAccess < cutoff && !cart.isDirty() && !cart.clearing)) {
+                    shard.removals++;
+                }
+            }
+        }
+    }
+
+    // After the clearing transaction commits: journal the clear, then the changes made since,
+    // which the clear record would otherwise hide from a replay.
+    private void completeClear(UserCart emptied) {
+        synchronized (shardFor(emptied.userId)) {
+            journal.appendClear(emptied.userId);
+            rejournal(emptied);
+            emptied.clearing = false;
+            mutations.incrementAndGet();
+        }
+    }
+
+    // After the clearing transaction rolls back: its rows are still there, so the old cart's lines
+    // come back, except where the user changed a line since.
+    private void restore(UserCart emptied, UserCart removed) {
+        synchronized (shardFor(emptied.userId)) {
+            if (removed != null) {
+                for (Line line : removed.lines.values()) {
+                    Line newer = emptied.lines.get(line.bookId);
+                    if (newer == null) {
+                        emptied.lines.put(line.bookId, line);
+                    } else if (newer.rowId == null) {
+                        newer.rowId = line.rowId;
+                    }
+                }
+            }
+            // A flush meanwhile may have dropped the journal segments holding these changes.
+            rejournal(emptied);
+            emptied.clearing = false;
+            mutations.incrementAndGet();
+        }
+        logger.info("Restored the cart of user {} after its clear was rolled back", emptied.userId);
+    }
+
+    // Callers must hold the shard monitor.
+    private void rejournal(UserCart cart) {
+        for (Line line : cart.lines.values()) {
+            if (line.dirty) {
+                journal.appendSet(cart.userId, line.bookId, line.quantity);
+            }
+        }
+    }
+
+    // Journals the new quantity, then applies it. Callers must hold the shard monitor.
+    private Line set(UserCart cart, long bookId, Line line, int quantity) {
+        journal.appendSet(cart.userId, bookId, quantity);
+        if (line == null) {
+            line = new Line(bookId, null, quantity);
+            cart.lines.put(bookId, line);
+        }
+        line.quantity = quantity;
+        line.dirty = true;
+        mutations.incrementAndGet();
+        return line;
+    }
+
+    private static Line find(UserCart cart, Long cartItemId) {
+        Line line = lineFor(cart, cartItemId);
+        if (line == null) {
+            throw new RuntimeException("Cart item not found with ID: " + cartItemId);
+        }
+        return line;
+    }
+
+    private static Line lineFor(UserCart cart, Long cartItemId) {
+        for (Line line : cart.lines.values()) {
+            if (line.matches(cartItemId)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    // Callers must hold the shard monitor.
+    private static CartItem toItem(Line line, User user, Book book) {
+        return new CartItem(line.publicId(), user, book, line.quantity);
+    }
+
+    // Runs action on the user's cart under its shard monitor, loading the cart first if needed.
+    // The load runs outside the monitor so a slow query does not block the rest of the shard. A
+    // cart installed meanwhile (by another load or a clear) wins over the loaded rows, and the load
+    // is repeated if carts left the shard while it ran, since its rows may predate their last flush.
+    private <T> T withCart(User user, Function<UserCart, T> action) {
+        long userId = user.getId();
+        Shard shard = shardFor(userId);
+        while (true) {
+            long removals;
+            synchronized (shard) {
+                UserCart cart = shard.carts.get(userId);
+                if (cart != null) {
+                    cart.lastAccess = System.currentTimeMillis();
+                    return action.apply(cart);
+                }
+                removals = shard.removals;
+            }
+            List<CartItem> rows = loadRows(user);
+            synchronized (shard) {
+                UserCart cart = shard.carts.get(userId);
+                if (cart == null) {
+                    if (shard.removals != removals) {
+                        continue;
+                    }
+                    cart = new UserCart(userId);
+                    for (CartItem row : rows) {
+                        cart.lines.put(row.getBook().getId(), new Line(row.getBook().getId(), row.getId(), row.getQuantity()));
+                    }
+                    shard.carts.put(userId, cart);
+                }
+                cart.lastAccess = System.currentTimeMillis();
+                return action.apply(cart);
+            }
+        }
+    }
+
+    // The cart stays in memory until it idles out, so its rows come from the primary, in a
+    // transaction of its own: the caller's read-only transaction may be reading a replica that has
+    // not caught up with the last flush or clear.
+    private List<CartItem> loadRows(User user) {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        definition.setReadOnly(true);
+        return ReadWriteRoutingDataSource.readFromPrimary(
+                () -> new TransactionTemplate(transactionManager, definition).execute(status -> cartItemRepository.findByUser(user)));
+    }
+
+    private Shard shardFor(long userId) {
+        return shards[(int) Math.floorMod(userId, (long) shards.length)];
+    }
+
+    // Folds the journal to the last value per line and writes it in one transaction.
+    private void replay(List<Path> segments) {
+        Map<Long, Map<Long, Integer>> carts = new LinkedHashMap<>();
+        try {
+            CartJournal.replay(segments, entry -> {
+                if (entry.getBookId() == null) {
+                    carts.remove(entry.getUserId());
+                } else {
+                    carts.computeIfAbsent(entry.getUserId(), id -> new LinkedHashMap<>())
+                            .put(entry.getBookId(), entry.getQuantity());
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Cannot read the cart journal, leaving it in place: {}", e.getMessage(), e);
+            return;
+        }
+        TransactionStatus status = transactionManager.getTransaction(
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        int applied = 0;
+        try {
+            Set<Long> skippedUsers = new HashSet<>();
+            for (Map.Entry<Long, Map<Long, Integer>> cart : carts.entrySet()) {
+                User user = userRepository.findById(cart.getKey()).orElse(null);
+                if (user == null) {
+                    skippedUsers.add(cart.getKey());
+                    continue;
+                }
+                for (Map.Entry<Long, Integer> line : cart.getValue().entrySet()) {
+                    Book book = bookRepository.findById(line.getKey()).orElse(null);
+                    if (book != null) {
+                        applyReplayed(user, book, line.getValue());
+                        applied++;
+                    }
+                }
+            }
+            transactionManager.commit(status);
+            if (!skippedUsers.isEmpty()) {
+                logger.warn("Cart journal replay skipped unknown users {}", skippedUsers);
+            }
+        } catch (RuntimeException e) {
+            if (!status.isCompleted()) {
+                transactionManager.rollback(status);
+            }
+            logger.error("Cart journal replay failed, leaving the journal in place: {}", e.getMessage(), e);
+            return;
+        }
+        journal.delete(segments);
+        logger.info("Replayed {} cart line changes from {} journal segments", applied, segments.size());
+    }
+
+    private void applyReplayed(User user, Book book, int quantity) {
+        CartItem row = cartItemRepository.findByUserAndBook(user, book).orElse(null);
+        if (quantity <= 0) {
+            if (row != null) {
+                cartItemRepository.delete(row);
+            }
+        } else if (row != null) {
+            row.setQuantity(quantity);
+        } else {
+            cartItemRepository.save(new CartItem(null, user, book, quantity));
+        }
+    }
+}
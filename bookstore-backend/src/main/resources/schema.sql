@@ -0,0 +1,4 @@
+-- Ids for cart lines inserted by CartItemRepository.upsertQuantity. Hibernate's pooled optimizer owns
+-- cart_items_seq, so native inserts draw from their own sequence, started far above any id it will
+-- reach yet below 2^53, so the ids stay exact as JavaScript numbers.
+CREATE SEQUENCE IF NOT EXISTS cart_items_upsert_seq START WITH 1000000000000000;
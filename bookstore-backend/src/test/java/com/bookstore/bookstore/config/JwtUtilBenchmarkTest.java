@@ -0,0 +1,167 @@
+package com.bookstore.bookstore.config;
+
+import com.bookstore.bookstore.service.CustomUserDetailsService;
+import com.bookstore.bookstore.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that a bearer token is verified once per request and not at all on a verified-token cache
+ * hit. The per-request cost of the former three verifications, one verification and a cache hit is
+ * measured by a test tagged "benchmark", which only runs with -Pbenchmark and logs its figures.
+ */
+class JwtUtilBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtUtilBenchmarkTest.class);
+
+    private static final String SECRET = "benchmarkSecretThatIsAtLeastThirtyTwoBytesLong!";
+    private static final int WARMUP = 5_000;
+    private static final int REQUESTS = 20_000;
+
+    private final UserDetails user = new User("jwt-benchmark", "unused", Collections.emptyList());
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void filterVerifiesTheTokenOnce() throws Exception {
+        JwtUtil jwtUtil = spy(new JwtUtil(SECRET, 3_600_000, 0));
+        String token = jwtUtil.generateToken(user);
+        CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+        when(userDetailsService.loadUserByUsername("jwt-benchmark")).thenReturn(user);
+        TokenRevocationService revocationService = mock(TokenRevocationService.class);
+        JwtRequestFilter filter = new JwtRequestFilter(userDetailsService, jwtUtil, revocationService);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cart");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(jwtUtil, times(1)).parseToken(token);
+        verify(jwtUtil, never()).extractUsername(anyString());
+        verify(jwtUtil, never()).validateToken(anyString(), any(UserDetails.class));
+    }
+
+    @Test
+    void cacheHitSkipsVerification() {
+        // Verification builds new claims every time, so getting the same instance back means it was skipped.
+        JwtUtil cached = new JwtUtil(SECRET, 3_600_000, 1_000);
+        String token = cached.generateToken(user);
+        assertSame(cached.parseToken(token), cached.parseToken(token));
+
+        JwtUtil uncached = new JwtUtil(SECRET, 3_600_000, 0);
+        assertNotSame(uncached.parseToken(token), uncached.parseToken(token));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void singleParseAndCacheCutPerRequestCost() {
+        JwtUtil uncached = new JwtUtil(SECRET, 3_600_000, 0);
+        JwtUtil cached = new JwtUtil(SECRET, 3_600_000, 1_000);
+        String token = cached.generateToken(user);
+
+        long legacy = nanosPerRequest(() -> legacyAuthenticate(token));
+        long singleParse = nanosPerRequest(() -> authenticate(uncached, token));
+        long cacheHit = nanosPerRequest(() -> authenticate(cached, token));
+        logger.info("JWT authentication per request: three parses {} ns, one parse {} ns, cache hit {} ns",
+                legacy, singleParse, cacheHit);
+
+        assertTrue(singleParse < legacy, "one verification should beat three: " + singleParse + " vs " + legacy + " ns");
+        assertTrue(cacheHit < singleParse, "a cache hit should beat a verification: " + cacheHit + " vs " + singleParse + " ns");
+    }
+
+    @Test
+    void cacheNeverAcceptsWhatVerificationRejects() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 3_600_000, 1_000);
+        String token = jwtUtil.generateToken(user);
+        assertEquals("jwt-benchmark", jwtUtil.parseToken(token).getSubject());
+
+        // A tampered signature hashes to a different key, so it is verified and rejected.
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        assertThrows(JwtException.class, () -> jwtUtil.parseToken(tampered));
+
+        // A token cached while valid is rejected once it expires.
+        JwtUtil shortLived = new JwtUtil(SECRET, 1_500, 1_000);
+        String expiring = shortLived.generateToken(user);
+        Claims claims = shortLived.parseToken(expiring);
+        assertTrue(shortLived.validateToken(claims, user));
+        sleep(2_100);
+        assertThrows(ExpiredJwtException.class, () -> shortLived.parseToken(expiring));
+    }
+
+    // What the filter did before: extractUsername, then validateToken's extractUsername and expiry check.
+    private void legacyAuthenticate(String token) {
+        String username = legacyClaims(token).getSubject();
+        boolean valid = username.equals(legacyClaims(token).getSubject())
+                && !legacyClaims(token).getExpiration().before(new Date());
+        if (!valid) {
+            throw new IllegalStateException("token rejected");
+        }
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build().parseClaimsJws(token).getBody();
+    }
+
+    private void authenticate(JwtUtil jwtUtil, String token) {
+        if (!jwtUtil.validateToken(jwtUtil.parseToken(token), user)) {
+            throw new IllegalStateException("token rejected");
+        }
+    }
+
+    private static long nanosPerRequest(Runnable request) {
+        for (int i = 0; i < WARMUP; i++) {
+            request.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            request.run();
+        }
+        return (System.nanoTime() - start) / REQUESTS;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
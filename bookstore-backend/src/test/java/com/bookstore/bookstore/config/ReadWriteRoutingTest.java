@@ -0,0 +1,263 @@
+package com.bookstore.bookstore.config;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.CartItem;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.CartItemRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.CartService;
+import com.bookstore.bookstore.service.CatalogResponseCache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routes against two extra in-memory H2 databases standing in for replicas. Each test copies the
+ * primary into them first; until then they fail the health check, which looks for the users table,
+ * so the application starts on the primary alone.
+ */
+@SpringBootTest(properties = {
+        "datasource.replicas.urls=" + ReadWriteRoutingTest.REPLICA_A + "," + ReadWriteRoutingTest.REPLICA_B,
+        "datasource.replicas.validation-query=SELECT COUNT(*) FROM users",
+        "datasource.replicas.health-check-interval-ms=3600000",
+        "datasource.replicas.read-your-writes-ms=1000",
+        "cart.store.mode=write-behind",
+        "cart.store.journal-dir=target/cart-journal-routing",
+        "cart.store.flush-interval-ms=3600000"
+})
+class ReadWriteRoutingTest {
+
+    static final String REPLICA_A = "jdbc:h2:mem:replica_a;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_B = "jdbc:h2:mem:replica_b;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private CatalogResponseCache responseCache;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private CartService cartService;
+
+    @Value("${spring.datasource.url}")
+    private String primaryUrl;
+    @Value("${spring.datasource.username}")
+    private String username;
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @BeforeEach
+    void replicate() throws Exception {
+        Path script = Files.createTempFile("replica", ".sql");
+        try {
+            execute(primaryUrl, "SCRIPT TO '" + script + "'");
+            for (String replica : new String[] {REPLICA_A, REPLICA_B}) {
+                execute(replica, "DROP ALL OBJECTS");
+                execute(replica, "RUNSCRIPT FROM '" + script + "'");
+            }
+        } finally {
+            Files.delete(script);
+        }
+        routingDataSource.checkReplicas();
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsAreSpreadOverTheReplicas() {
+        Set<String> readFrom = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            readFrom.add(inTransaction(true, this::databaseName));
+        }
+        assertEquals(Set.of("REPLICA_A", "REPLICA_B"), readFrom);
+
+        assertEquals("TESTDB", inTransaction(false, this::databaseName));
+        assertEquals("TESTDB", databaseName());
+    }
+
+    @Test
+    void repositoryWritesGoToThePrimary() {
+        // Repository reads run in read-only transactions of their own.
+        long replicated = userRepository.count();
+        User user = userRepository.save(new User("routing-write", "routing-write@test", "unused", "ROLE_USER"));
+        try {
+            assertEquals(replicated, userRepository.count());
+            long primary = inTransaction(false, userRepository::count);
+            assertEquals(replicated + 1, primary);
+        } finally {
+            userRepository.delete(user);
+        }
+    }
+
+    @Test
+    void writesAfterReadsInOneSessionGoToThePrimary() {
+        // One EntityManager across both transactions, as open-in-view keeps it for a whole request.
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        long replicated;
+        User user;
+        try {
+            // The read-only count opens the session's first connection, on a replica.
+            replicated = userRepository.count();
+            user = userRepository.save(new User("routing-session", "routing-session@test", "unused", "ROLE_USER"));
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+        try {
+            long primary = inTransaction(false, userRepository::count);
+            assertEquals(replicated + 1, primary);
+            assertEquals(replicated, userRepository.count());
+        } finally {
+            userRepository.delete(user);
+        }
+    }
+
+    @Test
+    void unhealthyReplicasAreSkipped() throws Exception {
+        execute(REPLICA_B, "DROP ALL OBJECTS");
+        routingDataSource.checkReplicas();
+        for (int i = 0; i < 4; i++) {
+            assertEquals("REPLICA_A", inTransaction(true, this::databaseName));
+        }
+
+        execute(REPLICA_A, "DROP ALL OBJECTS");
+        routingDataSource.checkReplicas();
+        assertEquals("TESTDB", inTransaction(true, this::databaseName));
+    }
+
+    @Test
+    void usersReadTheirOwnWritesFromThePrimary() throws Exception {
+        authenticate("routing-writer");
+        inTransaction(false, () -> jdbcTemplate.update("UPDATE users SET email = email WHERE 1 = 0"));
+        assertEquals("TESTDB", inTransaction(true, this::databaseName));
+
+        authenticate("routing-reader");
+        assertTrue(inTransaction(true, this::databaseName).startsWith("REPLICA_"));
+
+        authenticate("routing-writer");
+        Thread.sleep(1_100);
+        assertTrue(inTransaction(true, this::databaseName).startsWith("REPLICA_"));
+    }
+
+    @Test
+    void responsesCachedAfterAWriteAreReadFromThePrimary() throws Exception {
+        Book book = bookRepository.save(new Book(null, "Routing before", "Author", null, BigDecimal.TEN, 5, null));
+        try {
+            replicate();
+            Book update = new Book(null, "Routing after", "Author", null, BigDecimal.TEN, 5, null);
+            bookService.updateBook(book.getId(), update);
+            // As a bulk stock update does, so the next read cannot be served from the second-level cache.
+            entityManagerFactory.getCache().evict(Book.class, book.getId());
+
+            CatalogResponseCache.Entry entry = responseCache.getOrLoad(CatalogResponseCache.BOOK_KEY_PREFIX + book.getId(),
+                    () -> bookService.getBookById(book.getId()).orElse(null));
+            assertTrue(new String(entry.getJson(), StandardCharsets.UTF_8).contains("Routing after"));
+        } finally {
+            responseCache.invalidateBook(book.getId());
+            bookRepository.deleteById(book.getId());
+        }
+    }
+
+    @Test
+    void replicaReadsDoNotFillTheSecondLevelCache() throws Exception {
+        Book book = bookRepository.save(new Book(null, "Routing stock", "Author", null, BigDecimal.TEN, 5, null));
+        try {
+            replicate();
+            inTransaction(false, () -> jdbcTemplate.update("UPDATE books SET quantity = 7 WHERE id = ?", book.getId()));
+            entityManagerFactory.getCache().evict(Book.class, book.getId());
+
+            assertEquals(5, bookRepository.findById(book.getId()).orElseThrow().getQuantity());
+            assertFalse(entityManagerFactory.getCache().contains(Book.class, book.getId()));
+
+            Book fresh = ReadWriteRoutingDataSource.readFromPrimary(() -> bookRepository.findById(book.getId())).orElseThrow();
+            assertEquals(7, fresh.getQuantity());
+            assertTrue(entityManagerFactory.getCache().contains(Book.class, book.getId()));
+            assertEquals(7, bookRepository.findById(book.getId()).orElseThrow().getQuantity());
+        } finally {
+            bookRepository.deleteById(book.getId());
+        }
+    }
+
+    @Test
+    void writeBehindCartsAreLoadedFromThePrimary() throws Exception {
+        User user = userRepository.save(new User("routing-cart", "routing-cart@test", "unused", "ROLE_USER"));
+        Book book = bookRepository.save(new Book(null, "Routing cart", "Author", null, BigDecimal.TEN, 5, null));
+        try {
+            replicate();
+            cartItemRepository.save(new CartItem(null, user, book, 3));
+
+            assertEquals(3, cartService.getUserCart(user).get(0).getQuantity());
+        } finally {
+            cartItemRepository.deleteByUser(user);
+            bookRepository.deleteById(book.getId());
+            userRepository.delete(user);
+        }
+    }
+
+    private String databaseName() {
+        return jdbcTemplate.queryForObject("SELECT DATABASE()", String.class);
+    }
+
+    private <T> T inTransaction(boolean readOnly, Supplier<T> action) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> action.get());
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(username, null, "ROLE_USER"));
+    }
+
+    private void execute(String url, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.bookstore.bookstore.controller;
+
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "auth.bcrypt.strength=5")
+@AutoConfigureMockMvc
+class AuthControllerLoginTest {
+
+    private static final String USERNAME = "login-rehash";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @AfterEach
+    void cleanUp() {
+        userRepository.delete(user);
+    }
+
+    @Test
+    void successfulLoginRehashesAWeakerStoredHash() throws Exception {
+        user = userRepository.save(new User(USERNAME, USERNAME + "@test", new BCryptPasswordEncoder(4).encode("secret"), "ROLE_USER"));
+
+        login("secret").andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value(USERNAME))
+                .andExpect(jsonPath("$.roles[0]").value("ROLE_USER"))
+                .andExpect(jsonPath("$.jwt").isNotEmpty());
+        String rehashed = userRepository.findByUsername(USERNAME).orElseThrow().getPassword();
+        assertTrue(rehashed.startsWith("$2a$05$"), "expected a strength 5 hash, got " + rehashed);
+
+        login("secret").andExpect(status().isOk());
+        login("wrong").andExpect(status().isUnauthorized());
+    }
+
+    private ResultActions login(String password) throws Exception {
+        MvcResult pending = mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + password + "\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(pending));
+    }
+}
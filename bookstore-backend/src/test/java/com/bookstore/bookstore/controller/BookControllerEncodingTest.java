@@ -0,0 +1,23 @@
+package com.bookstore.bookstore.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookControllerEncodingTest {
+
+    @Test
+    void gzipIsServedOnlyWhenAcceptEncodingGivesItAPositiveQuality() {
+        assertTrue(BookController.acceptsGzip("gzip"));
+        assertTrue(BookController.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(BookController.acceptsGzip("br;q=1, *;q=0.1"));
+
+        assertFalse(BookController.acceptsGzip(null));
+        assertFalse(BookController.acceptsGzip("identity"));
+        assertFalse(BookController.acceptsGzip("gzip;q=0"));
+        assertFalse(BookController.acceptsGzip("gzip; q=0.000, identity"));
+        assertFalse(BookController.acceptsGzip("gzip;q=0, *;q=1"));
+        assertFalse(BookController.acceptsGzip("*;q=0"));
+    }
+}
@@ -0,0 +1,179 @@
+package com.bookstore.bookstore.controller;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.CartItem;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.CartItemRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import com.bookstore.bookstore.service.AuthenticatedUser;
+import com.bookstore.bookstore.support.QueryCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bookstore.bookstore.support.QueryCounter.assertQueryCount;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the SQL statement count of cart requests and checks it does not grow with the number of lines.
+ */
+@SpringBootTest(properties = {QueryCounter.PROPERTY, QueryCounter.NO_SECOND_LEVEL_CACHE, QueryCounter.NO_QUERY_CACHE})
+@AutoConfigureMockMvc
+class CartQueryCountTest {
+
+    private static final String USERNAME = "cart-query-count";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    private User user;
+    private final List<Book> books = new ArrayList<>();
+    private final List<CartItem> lines = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        cartItemRepository.deleteByUser(user);
+        userRepository.delete(user);
+        bookRepository.deleteAll(books);
+        books.clear();
+        lines.clear();
+    }
+
+    @Test
+    void cartReadCostIsIndependentOfLineCount() throws Exception {
+        createCart(2);
+        // User lookup and the fetch-joined cart read.
+        perform(2, get("/api/cart"));
+
+        addLines(6);
+        perform(2, get("/api/cart"));
+    }
+
+    @Test
+    void authenticatedPrincipalSavesTheUserLookup() throws Exception {
+        createCart(3);
+        AuthenticatedUser principal = new AuthenticatedUser(user);
+        // Only the fetch-joined cart read; the principal set by the JWT filter carries the user.
+        assertQueryCount(1, () -> {
+            try {
+                return mockMvc.perform(get("/api/cart").with(authentication(
+                                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()))))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.length()").value(3))
+                        .andReturn();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    void deltaMutationsCostAConstantNumberOfQueries() throws Exception {
+        createCart(8);
+        CartItem line = lines.get(0);
+
+        // User lookup, fetch-joined line read, UPDATE, cart totals.
+        perform(4, put("/api/cart/update?view=delta")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"bookId\":" + line.getId() + ",\"quantity\":3}"));
+        // User lookup, line read, DELETE, cart totals.
+        perform(4, delete("/api/cart/remove/" + lines.get(1).getId() + "?view=delta"));
+
+        mockMvc.perform(put("/api/cart/update?view=delta").with(user(USERNAME).roles("USER"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookId\":" + line.getId() + ",\"quantity\":2}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.item.quantity").value(2))
+                .andExpect(jsonPath("$.lineCount").value(7))
+                .andExpect(jsonPath("$.itemCount").value(8))
+                .andExpect(jsonPath("$.cartTotal").value(80.0));
+    }
+
+    @Test
+    void batchCostIsIndependentOfOperationCount() throws Exception {
+        createCart(4);
+        List<Book> added = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            added.add(bookRepository.save(new Book(null, "Batch " + i, "Author", null, BigDecimal.TEN, 10, null)));
+        }
+        books.addAll(added);
+
+        StringBuilder operations = new StringBuilder("{\"operations\":[")
+                .append("{\"op\":\"update\",\"cartItemId\":").append(lines.get(0).getId()).append(",\"quantity\":5},")
+                .append("{\"op\":\"remove\",\"cartItemId\":").append(lines.get(1).getId()).append("},")
+                .append("{\"op\":\"add\",\"bookId\":").append(books.get(2).getId()).append(",\"quantity\":2}");
+        for (Book book : added) {
+            operations.append(",{\"op\":\"add\",\"bookId\":").append(book.getId()).append(",\"quantity\":1}");
+        }
+        operations.append("]}");
+
+        // User lookup, book check, current lines, DELETE, batched UPDATEs, batched INSERTs, final cart read.
+        perform(7, post("/api/cart/batch").contentType(MediaType.APPLICATION_JSON).content(operations.toString()));
+
+        mockMvc.perform(get("/api/cart").with(user(USERNAME).roles("USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(9))
+                .andExpect(jsonPath("$[0].quantity").value(5))
+                .andExpect(jsonPath("$[1].quantity").value(3));
+    }
+
+    @Test
+    void invalidBatchChangesNothing() throws Exception {
+        createCart(2);
+        mockMvc.perform(post("/api/cart/batch").with(user(USERNAME).roles("USER"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[{\"op\":\"remove\",\"cartItemId\":" + lines.get(0).getId() + "},"
+                                + "{\"op\":\"update\",\"cartItemId\":-1,\"quantity\":2}]}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/cart").with(user(USERNAME).roles("USER")))
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    private void perform(int expectedStatements, MockHttpServletRequestBuilder request) {
+        assertQueryCount(expectedStatements, () -> {
+            try {
+                return mockMvc.perform(request.with(user(USERNAME).roles("USER")))
+                        .andExpect(status().is2xxSuccessful()).andReturn();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void createCart(int lineCount) {
+        user = userRepository.save(new User(USERNAME, USERNAME + "@test", "unused", "ROLE_USER"));
+        addLines(lineCount);
+    }
+
+    private void addLines(int lineCount) {
+        for (int i = 0; i < lineCount; i++) {
+            Book book = bookRepository.save(new Book(null, "Cart " + books.size(), "Author", null, BigDecimal.TEN, 10, null));
+            books.add(book);
+            lines.add(cartItemRepository.save(new CartItem(null, user, book, 1)));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.bookstore.bookstore.controller;
+
+import com.bookstore.bookstore.config.JwtUtil;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import com.bookstore.bookstore.service.AuthenticatedUser;
+import com.bookstore.bookstore.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Imports with a batch size of 3, so the valid rows of each feed share one batch, and a CHECK
+ * constraint that makes the database itself reject one of them.
+ */
+@SpringBootTest(properties = {
+        "catalog.import.batch-size=3",
+        "catalog.import.max-errors=3"
+})
+@AutoConfigureMockMvc
+class CatalogImportTest {
+
+    private static final String IMPORT_AUTHOR = "Import test author";
+    private static final String REJECTED_TITLE = "Rejected by database";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User admin;
+
+    @BeforeEach
+    void setUp() {
+        admin = userRepository.save(new User("import-admin", "import-admin@test", "unused", "ROLE_ADMIN"));
+        jdbcTemplate.execute("ALTER TABLE books ADD CONSTRAINT import_test_reject CHECK (title <> '" + REJECTED_TITLE + "')");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.execute("ALTER TABLE books DROP CONSTRAINT import_test_reject");
+        for (Book book : importedBooks().values()) {
+            bookService.deleteBook(book.getId());
+        }
+        userRepository.delete(admin);
+    }
+
+    @Test
+    void csvImportReportsRejectedRowsAndIsolatesDatabaseFailures() throws Exception {
+        String csv = "title,author,price,quantity,description\r\n"
+                + "\"Import, quoted\"," + IMPORT_AUTHOR + ",12.50,3,\"Spans\nlines and \"\"quotes\"\"\"\r\n"
+                + "No price," + IMPORT_AUTHOR + ",,1,\r\n"
+                + REJECTED_TITLE + "," + IMPORT_AUTHOR + ",5,1,\r\n"
+                + "Import plain," + IMPORT_AUTHOR + ",7.25,2,\r\n"
+                + "Negative quantity," + IMPORT_AUTHOR + ",1,-1,\r\n"
+                + "Bad price," + IMPORT_AUTHOR + ",abc,1,\r\n";
+        String before = catalogEtag();
+
+        importBooks("text/csv", csv)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(4))
+                // max-errors caps the listed rows, not the count.
+                .andExpect(jsonPath("$.errors", hasSize(3)))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("price is required."))
+                .andExpect(jsonPath("$.errors[1].row").value(3))
+                .andExpect(jsonPath("$.errors[2].row").value(5));
+
+        Map<String, Book> imported = importedBooks();
+        assertEquals(List.of("Import plain", "Import, quoted"), imported.keySet().stream().sorted().collect(Collectors.toList()));
+        Book quoted = bookRepository.findById(imported.get("Import, quoted").getId()).orElseThrow();
+        assertEquals("Spans\nlines and \"quotes\"", quoted.getDescription());
+        assertEquals(0, new BigDecimal("12.50").compareTo(quoted.getPrice()));
+        assertEquals(3, quoted.getQuantity());
+
+        assertNotEquals(before, catalogEtag());
+        mockMvc.perform(get("/api/books").header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void jsonImportReportsRejectedRowsAndIsolatesDatabaseFailures() throws Exception {
+        String json = "[{\"title\":\"Import first\",\"author\":\"" + IMPORT_AUTHOR + "\",\"price\":9.99,\"quantity\":4},"
+                + "42,"
+                + "{\"author\":\"" + IMPORT_AUTHOR + "\",\"price\":1},"
+                + "{\"title\":\"" + REJECTED_TITLE + "\",\"author\":\"" + IMPORT_AUTHOR + "\",\"price\":1},"
+                + "{\"title\":\"Import last\",\"author\":\"" + IMPORT_AUTHOR + "\",\"price\":\"3\"}]";
+        String before = catalogEtag();
+
+        importBooks(MediaType.APPLICATION_JSON_VALUE, json)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(3))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("Expected a JSON object."))
+                .andExpect(jsonPath("$.errors[1].row").value(3))
+                .andExpect(jsonPath("$.errors[1].message").value("title is required."))
+                .andExpect(jsonPath("$.errors[2].row").value(4));
+
+        assertEquals(List.of("Import first", "Import last"), importedBooks().keySet().stream().sorted().collect(Collectors.toList()));
+        assertNotEquals(before, catalogEtag());
+    }
+
+    @Test
+    void feedThatIsNotABookFeedIsRejected() throws Exception {
+        importBooks("text/csv", "name,price\r\nSomething,1\r\n").andExpect(status().isBadRequest());
+        importBooks(MediaType.APPLICATION_JSON_VALUE, "{\"title\":\"Not an array\"}").andExpect(status().isBadRequest());
+        assertEquals(0, importedBooks().size());
+    }
+
+    private ResultActions importBooks(String contentType, String body) throws Exception {
+        return mockMvc.perform(post("/api/books/import")
+                .header("Authorization", "Bearer " + jwtUtil.generateToken(new AuthenticatedUser(admin)))
+                .contentType(contentType)
+                .content(body));
+    }
+
+    private String catalogEtag() throws Exception {
+        return mockMvc.perform(get("/api/books")).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private Map<String, Book> importedBooks() {
+        return bookRepository.findAll().stream()
+                .filter(book -> IMPORT_AUTHOR.equals(book.getAuthor()))
+                .collect(Collectors.toMap(Book::getTitle, book -> book));
+    }
+}
@@ -0,0 +1,159 @@
+package com.bookstore.bookstore.controller;
+
+import com.bookstore.bookstore.config.JwtUtil;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.CartItemRepository;
+import com.bookstore.bookstore.repository.OrderRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import com.bookstore.bookstore.service.AuthenticatedUser;
+import com.bookstore.bookstore.service.PrincipalCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional GETs of the catalog, a cart and an order history: a repeated request answers 304
+ * until a write through the API changes what the resource shows.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ResourceEtagTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private PrincipalCache principalCache;
+
+    private User admin;
+    private User user;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        admin = userRepository.save(new User("etag-admin", "etag-admin@test", "unused", "ROLE_ADMIN"));
+        user = userRepository.save(new User("etag-user", "etag-user@test", "unused", "ROLE_USER"));
+        book = bookRepository.save(new Book(null, "Etag title", "Etag author", null, BigDecimal.TEN, 10, null));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderRepository.deleteAll(orderRepository.findByUser(user));
+        cartItemRepository.deleteByUser(user);
+        userRepository.deleteAll(List.of(admin, user));
+        // As UserService does on delete: each test recreates the users under new ids.
+        principalCache.invalidate(admin.getId());
+        principalCache.invalidate(user.getId());
+        bookRepository.deleteById(book.getId());
+    }
+
+    @Test
+    void catalogIsNotModifiedUntilABookOrItsStockChanges() throws Exception {
+        String etag = unchangedSince("/api/books", null);
+        unchangedSince("/api/books/" + book.getId(), null);
+
+        mockMvc.perform(put("/api/books/" + book.getId()).header(HttpHeaders.AUTHORIZATION, bearer(admin))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Etag title, revised\",\"author\":\"Etag author\",\"price\":10,\"quantity\":10}"))
+                .andExpect(status().isOk());
+        etag = changedSince("/api/books", null, etag);
+
+        adjustStock();
+        changedSince("/api/books", null, etag);
+    }
+
+    @Test
+    void cartIsNotModifiedUntilTheCartOrTheCatalogChanges() throws Exception {
+        String etag = unchangedSince("/api/cart", user);
+
+        mockMvc.perform(post("/api/cart/add").header(HttpHeaders.AUTHORIZATION, bearer(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookId\":" + book.getId() + ",\"quantity\":2}"))
+                .andExpect(status().isCreated());
+        etag = changedSince("/api/cart", user, etag);
+
+        // Cart lines show live stock, so a stock change alone is enough.
+        adjustStock();
+        changedSince("/api/cart", user, etag);
+    }
+
+    @Test
+    void orderHistoryIsNotModifiedUntilAnOrderIsPlaced() throws Exception {
+        mockMvc.perform(post("/api/cart/add").header(HttpHeaders.AUTHORIZATION, bearer(user))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookId\":" + book.getId() + ",\"quantity\":1}"))
+                .andExpect(status().isCreated());
+        String etag = unchangedSince("/api/orders", user);
+
+        mockMvc.perform(post("/api/orders").header(HttpHeaders.AUTHORIZATION, bearer(user)))
+                .andExpect(status().isCreated());
+        changedSince("/api/orders", user, etag);
+    }
+
+    private void adjustStock() throws Exception {
+        mockMvc.perform(post("/api/books/stock-adjustments").header(HttpHeaders.AUTHORIZATION, bearer(admin))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"bookId\":" + book.getId() + ",\"delta\":3}]"))
+                .andExpect(status().isOk());
+    }
+
+    /** Fetches the resource, checks that a repeat with its tag answers 304, and returns the tag. */
+    private String unchangedSince(String path, User caller) throws Exception {
+        String etag = fetch(path, caller, null, status().isOk());
+        assertNotNull(etag);
+        fetch(path, caller, etag, status().isNotModified());
+        return etag;
+    }
+
+    /** Checks that the resource answers 200 with a new tag to a request carrying the old one. */
+    private String changedSince(String path, User caller, String oldEtag) throws Exception {
+        String etag = fetch(path, caller, oldEtag, status().isOk());
+        assertNotEquals(oldEtag, etag);
+        fetch(path, caller, etag, status().isNotModified());
+        return etag;
+    }
+
+    private String fetch(String path, User caller, String ifNoneMatch, ResultMatcher expected) throws Exception {
+        MockHttpServletRequestBuilder request = get(path);
+        if (caller != null) {
+            request.header(HttpHeaders.AUTHORIZATION, bearer(caller));
+        }
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return mockMvc.perform(request).andExpect(expected).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private String bearer(User caller) {
+        return "Bearer " + jwtUtil.generateToken(new AuthenticatedUser(caller));
+    }
+}
@@ -0,0 +1,244 @@
+package com.bookstore.bookstore.controller;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.Order;
+import com.bookstore.bookstore.model.OrderItem;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.CartItemRepository;
+import com.bookstore.bookstore.repository.OrderRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.StockService;
+import com.bookstore.bookstore.service.UserService;
+import com.bookstore.bookstore.support.QueryCounter;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bookstore.bookstore.support.QueryCounter.countQueries;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Compares the database round trips and latency of the cart and order history flows with the
+ * second-level cache warm and with it emptied before every request, which costs the same statements
+ * as running without it. Figures are logged; the assertions check the cache saves statements and
+ * that writes through the book and user services are never hidden by it. The measurement is tagged
+ * "benchmark" and only runs with -Pbenchmark.
+ */
+@SpringBootTest(properties = {QueryCounter.PROPERTY, "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureMockMvc
+class SecondLevelCacheBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecondLevelCacheBenchmarkTest.class);
+
+    private static final String USERNAME = "second-level-cache";
+    private static final int BOOKS = 5;
+    private static final int ORDERS = 10;
+    private static final int WARMUP = 20;
+    private static final int REQUESTS = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void createData() {
+        user = userRepository.save(new User(USERNAME, USERNAME + "@test", "unused", "ROLE_USER"));
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(bookRepository.save(new Book(null, "Cached " + i, "Author", null, BigDecimal.TEN, 1_000_000, null)));
+        }
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setUser(user);
+            order.setOrderDate(LocalDateTime.of(2024, 1, 1, 12, 0).plusDays(i));
+            order.setStatus(Order.OrderStatus.PENDING);
+            order.setTotalAmount(BigDecimal.TEN);
+            order.addOrderItem(new OrderItem(null, null, books.get(i % BOOKS), 1, BigDecimal.TEN));
+            orderRepository.save(order);
+        }
+    }
+
+    @AfterEach
+    void deleteData() {
+        cartItemRepository.deleteByUser(user);
+        orderRepository.deleteAll(orderRepository.findByUser(user));
+        userRepository.delete(user);
+        bookRepository.deleteAll(books);
+        books.clear();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void warmCacheSavesRoundTripsOnCartAndOrderHistory() {
+        Flow cold = new Flow(true);
+        Flow warm = new Flow(false);
+        for (int i = 0; i < WARMUP; i++) {
+            cold.run(i);
+            warm.run(i);
+        }
+        cold.reset();
+        warm.reset();
+        statistics().clear();
+        for (int i = 0; i < REQUESTS; i++) {
+            cold.run(i);
+            warm.run(i);
+        }
+        logger.info(String.format("Cart (add + view) per request: %.2f statements, %d us without cache; %.2f statements, %d us with cache",
+                cold.cartStatementsPerRequest(), cold.cartMicrosPerRequest(),
+                warm.cartStatementsPerRequest(), warm.cartMicrosPerRequest()));
+        logger.info(String.format("Order history per request: %.2f statements, %d us without cache; %.2f statements, %d us with cache",
+                cold.historyStatementsPerRequest(), cold.historyMicrosPerRequest(),
+                warm.historyStatementsPerRequest(), warm.historyMicrosPerRequest()));
+        Statistics statistics = statistics();
+        logger.info("Second-level cache: {} hits, {} misses; query cache: {} hits, {} misses",
+                statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount(),
+                statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount());
+
+        assertTrue(warm.cartStatementsPerRequest() < cold.cartStatementsPerRequest(),
+                "a warm cache should save cart statements: " + warm.cartStatementsPerRequest() + " vs " + cold.cartStatementsPerRequest());
+        assertTrue(warm.historyStatementsPerRequest() < cold.historyStatementsPerRequest(),
+                "a warm cache should save history statements: " + warm.historyStatementsPerRequest() + " vs " + cold.historyStatementsPerRequest());
+    }
+
+    @Test
+    void writesAreNeverHiddenByTheCache() {
+        Long bookId = books.get(0).getId();
+        // Load the book and the user into the caches.
+        assertEquals(1_000_000, bookService.getBookById(bookId).orElseThrow().getQuantity());
+        userService.getUserByUsername(USERNAME).orElseThrow();
+        assertTrue(entityManagerFactory.getCache().contains(Book.class, bookId));
+
+        // A stock change is a bulk UPDATE; the book must be evicted, and only that book.
+        bookService.getBookById(books.get(1).getId()).orElseThrow();
+        stockService.adjust(bookId, -3);
+        assertTrue(entityManagerFactory.getCache().contains(Book.class, books.get(1).getId()));
+        assertEquals(999_997, bookService.getBookById(bookId).orElseThrow().getQuantity());
+
+        Book changed = new Book(null, "Renamed", "Author", null, BigDecimal.ONE, 5, null);
+        bookService.updateBook(bookId, changed);
+        Book reread = bookService.getBookById(bookId).orElseThrow();
+        assertEquals("Renamed", reread.getTitle());
+        assertEquals(0, BigDecimal.ONE.compareTo(reread.getPrice()));
+
+        User update = new User(USERNAME, "changed-" + USERNAME + "@test", null, null);
+        userService.updateUser(user.getId(), update);
+        assertEquals("changed-" + USERNAME + "@test", userService.getUserByUsername(USERNAME).orElseThrow().getEmail());
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private void evictAll() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    /** The cart flow (add a book, then view the cart) and an order history read, with totals kept per flow. */
+    private class Flow {
+        private final boolean evictFirst;
+        private long cartStatements;
+        private long cartNanos;
+        private long historyStatements;
+        private long historyNanos;
+        private int requests;
+
+        Flow(boolean evictFirst) {
+            this.evictFirst = evictFirst;
+        }
+
+        void run(int iteration) {
+            Long bookId = books.get(iteration % BOOKS).getId();
+            cartStatements += measure(post("/api/cart/add?view=delta").contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"bookId\":" + bookId + ",\"quantity\":1}"), true);
+            cartStatements += measure(get("/api/cart"), true);
+            historyStatements += measure(get("/api/orders"), false);
+            requests++;
+        }
+
+        private int measure(MockHttpServletRequestBuilder request, boolean cart) {
+            if (evictFirst) {
+                evictAll();
+            }
+            long start = System.nanoTime();
+            int statements = countQueries(() -> {
+                try {
+                    mockMvc.perform(request.with(user(USERNAME).roles("USER"))).andExpect(status().is2xxSuccessful());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            long elapsed = System.nanoTime() - start;
+            if (cart) {
+                cartNanos += elapsed;
+            } else {
+                historyNanos += elapsed;
+            }
+            return statements;
+        }
+
+        void reset() {
+            cartStatements = 0;
+            cartNanos = 0;
+            historyStatements = 0;
+            historyNanos = 0;
+            requests = 0;
+        }
+
+        double cartStatementsPerRequest() {
+            return (double) cartStatements / requests;
+        }
+
+        long cartMicrosPerRequest() {
+            return cartNanos / requests / 1_000;
+        }
+
+        double historyStatementsPerRequest() {
+            return (double) historyStatements / requests;
+        }
+
+        long historyMicrosPerRequest() {
+            return historyNanos / requests / 1_000;
+        }
+    }
+}
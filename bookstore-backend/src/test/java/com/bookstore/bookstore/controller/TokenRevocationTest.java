@@ -0,0 +1,104 @@
+package com.bookstore.bookstore.controller;
+
+import com.bookstore.bookstore.config.JwtUtil;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.RevokedTokenRepository;
+import com.bookstore.bookstore.repository.TokenCutoffRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import com.bookstore.bookstore.service.AuthenticatedUser;
+import com.bookstore.bookstore.service.TokenRevocationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TokenRevocationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private TokenRevocationService revocationService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+    @Autowired
+    private TokenCutoffRepository tokenCutoffRepository;
+
+    private final List<User> users = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        revokedTokenRepository.deleteAll();
+        tokenCutoffRepository.deleteAll();
+        userRepository.deleteAll(users);
+        users.clear();
+        revocationService.rebuild();
+    }
+
+    @Test
+    void logoutRevokesOnlyThePresentedToken() throws Exception {
+        User user = createUser("revoke-one");
+        String revoked = tokenFor(user);
+        String other = tokenFor(user);
+        readCart(revoked).andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/auth/logout").header("Authorization", "Bearer " + revoked))
+                .andExpect(status().isOk());
+
+        readCart(revoked).andExpect(status().is4xxClientError());
+        readCart(other).andExpect(status().isOk());
+
+        // The revocation survives a rebuild of the in-memory filter from the database.
+        revocationService.rebuild();
+        readCart(revoked).andExpect(status().is4xxClientError());
+        readCart(other).andExpect(status().isOk());
+    }
+
+    @Test
+    void logoutEverywhereRevokesEveryEarlierToken() throws Exception {
+        User user = createUser("revoke-all");
+        User bystander = createUser("revoke-all-bystander");
+        String first = tokenFor(user);
+        String second = tokenFor(user);
+        String unrelated = tokenFor(bystander);
+
+        mockMvc.perform(post("/api/auth/logout-all").header("Authorization", "Bearer " + first))
+                .andExpect(status().isOk());
+
+        readCart(first).andExpect(status().is4xxClientError());
+        readCart(second).andExpect(status().is4xxClientError());
+        readCart(unrelated).andExpect(status().isOk());
+
+        revocationService.rebuild();
+        readCart(second).andExpect(status().is4xxClientError());
+    }
+
+    private ResultActions readCart(String token) throws Exception {
+        return mockMvc.perform(get("/api/cart").header("Authorization", "Bearer " + token));
+    }
+
+    private String tokenFor(User user) {
+        return jwtUtil.generateToken(new AuthenticatedUser(user));
+    }
+
+    private User createUser(String username) {
+        User user = userRepository.save(new User(username, username + "@test", "unused", "ROLE_USER"));
+        users.add(user);
+        return user;
+    }
+}
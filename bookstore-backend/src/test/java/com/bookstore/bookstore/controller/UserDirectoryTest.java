@@ -0,0 +1,120 @@
+package com.bookstore.bookstore.controller;
+
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.UserRepository;
+import com.bookstore.bookstore.support.QueryCounter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bookstore.bookstore.support.QueryCounter.assertQueryCount;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {QueryCounter.PROPERTY, QueryCounter.NO_SECOND_LEVEL_CACHE, QueryCounter.NO_QUERY_CACHE})
+@AutoConfigureMockMvc
+class UserDirectoryTest {
+
+    private static final int USERS = 25;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void createUsers() {
+        for (int i = 0; i < USERS; i++) {
+            String name = String.format("dir-%02d", i);
+            // Emails sort in the opposite order to usernames.
+            users.add(userRepository.save(new User(name, String.format("mail-%02d@dir.test", USERS - i), "hash", "ROLE_USER")));
+        }
+    }
+
+    @AfterEach
+    void deleteUsers() {
+        userRepository.deleteAll(users);
+        users.clear();
+    }
+
+    @Test
+    void pagesThroughAPrefixWithOneQueryPerPage() throws Exception {
+        List<String> usernames = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            JsonNode page = getPage("/api/users?prefix=dir-&size=10" + (cursor == null ? "" : "&cursor=" + cursor));
+            for (JsonNode item : page.get("items")) {
+                assertFalse(item.has("password"));
+                assertFalse(item.has("cartItems"));
+                usernames.add(item.get("username").asText());
+            }
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(USERS, usernames.size());
+        for (int i = 0; i < USERS; i++) {
+            assertEquals(String.format("dir-%02d", i), usernames.get(i));
+        }
+    }
+
+    @Test
+    void searchesByEmailPrefixInEmailOrder() throws Exception {
+        JsonNode page = getPage("/api/users?field=email&prefix=mail-0&size=5");
+        assertEquals(5, page.get("items").size());
+        assertEquals("mail-01@dir.test", page.get("items").get(0).get("email").asText());
+        assertEquals("dir-24", page.get("items").get(0).get("username").asText());
+        assertTrue(page.get("hasMore").asBoolean());
+
+        JsonNode rest = getPage("/api/users?field=email&prefix=mail-0&size=5&cursor=" + page.get("nextCursor").asText());
+        assertEquals(4, rest.get("items").size());
+        assertFalse(rest.get("hasMore").asBoolean());
+    }
+
+    @Test
+    void directoryIsForAdminsAndRejectsForeignCursors() throws Exception {
+        mockMvc.perform(get("/api/users").with(user("someone").roles("USER")))
+                .andExpect(status().isForbidden());
+
+        JsonNode page = getPage("/api/users?prefix=dir-&size=10");
+        mockMvc.perform(get("/api/users?field=email&cursor=" + page.get("nextCursor").asText())
+                        .with(user("admin").roles("ADMIN")))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode getPage(String url) {
+        String body = assertQueryCount(1, () -> {
+            try {
+                return mockMvc.perform(get(url).with(user("admin").roles("ADMIN")))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            return objectMapper.readTree(body);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.CartItem;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.CartItemRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "cart.sweeper.enabled=false",
+        "cart.sweeper.batch-size=2"
+})
+class AbandonedCartSweeperTest {
+
+    @Autowired
+    private AbandonedCartSweeper sweeper;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Book> books = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        users.forEach(cartItemRepository::deleteByUser);
+        userRepository.deleteAll(users);
+        bookRepository.deleteAll(books);
+        users.clear();
+        books.clear();
+    }
+
+    @Test
+    void sweepsOnlyCartsWhoseEveryLineExpired() {
+        Book first = createBook();
+        Book second = createBook();
+        List<User> abandoned = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = createCart("sweep-abandoned-" + i, first, second);
+            backdate(user, null);
+            abandoned.add(user);
+        }
+        User active = createCart("sweep-active", first, second);
+        CartItem stale = cartItemRepository.findByUser(active).get(0);
+        backdate(active, stale.getId());
+        User fresh = createCart("sweep-fresh", first, second);
+
+        assertEquals(10, sweeper.sweep());
+
+        for (User user : abandoned) {
+            assertEquals(0, cartItemRepository.findByUser(user).size());
+        }
+        assertEquals(2, cartItemRepository.findByUser(active).size());
+        assertEquals(2, cartItemRepository.findByUser(fresh).size());
+        assertEquals(10, sweeper.stats().get("lastRunRows"));
+        assertEquals(5, sweeper.stats().get("lastRunCarts"));
+        // Five expired carts, two owners per batch.
+        assertEquals(3, sweeper.stats().get("lastRunBatches"));
+        assertEquals(0, sweeper.sweep());
+    }
+
+    private User createCart(String username, Book... books) {
+        User user = userRepository.save(new User(username, username + "@test", "unused", "ROLE_USER"));
+        users.add(user);
+        for (Book book : books) {
+            cartItemRepository.save(new CartItem(null, user, book, 1));
+        }
+        return user;
+    }
+
+    // Moves the user's lines (or just one of them) past the default 30-day TTL.
+    private void backdate(User user, Long cartItemId) {
+        Timestamp longAgo = Timestamp.valueOf(LocalDateTime.now().minusDays(40));
+        if (cartItemId == null) {
+            jdbcTemplate.update("UPDATE cart_items SET last_touched_at = ? WHERE user_id = ?", longAgo, user.getId());
+        } else {
+            jdbcTemplate.update("UPDATE cart_items SET last_touched_at = ? WHERE id = ?", longAgo, cartItemId);
+        }
+    }
+
+    private Book createBook() {
+        Book book = bookRepository.save(new Book(null, "Sweep", "Author", null, BigDecimal.TEN, 10, null));
+        books.add(book);
+        return book;
+    }
+}
@@ -0,0 +1,34 @@
+package com.bookstore.bookstore.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void neverMissesAnAddedValueAndKeepsTheFalsePositiveRate() {
+        int insertions = 20_000;
+        BloomFilter filter = new BloomFilter(insertions, 0.01);
+        String[] added = new String[insertions];
+        for (int i = 0; i < insertions; i++) {
+            added[i] = UUID.randomUUID().toString();
+            filter.add(added[i]);
+        }
+        for (String value : added) {
+            assertTrue(filter.mightContain(value), "missed " + value);
+        }
+
+        int probes = 100_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "false-positive rate " + rate + " is well above the configured 1%");
+    }
+}
@@ -0,0 +1,62 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookFacetIndexTest {
+
+    private static final long HUGE = 5_000_000_000L;
+
+    @Test
+    void pagesSparseIdsInIdOrderWhateverTheIndexingOrder() {
+        BookFacetIndex index = new BookFacetIndex(null);
+        for (long id : new long[] { HUGE + 3, 7, HUGE, 2, HUGE + 1 }) {
+            index.index(book(id, "Doe, Jane", 5));
+        }
+
+        BookFacetIndex.Result first = index.query(List.of("Doe, Jane"), List.of(), null, 0, 2);
+        assertEquals(List.of(2L, 7L), first.getIds());
+        assertEquals(5, first.getTotal());
+        assertTrue(first.isHasMore());
+
+        BookFacetIndex.Result second = index.query(List.of("Doe, Jane"), List.of(), null, 7, 2);
+        assertEquals(List.of(HUGE, HUGE + 1), second.getIds());
+        assertTrue(second.isHasMore());
+
+        BookFacetIndex.Result last = index.query(List.of("Doe, Jane"), List.of(), null, HUGE + 1, 2);
+        assertEquals(List.of(HUGE + 3), last.getIds());
+        assertFalse(last.isHasMore());
+
+        assertTrue(index.query(List.of("Doe"), List.of(), null, 0, 10).getIds().isEmpty());
+    }
+
+    @Test
+    void removedBooksFreeTheirBitsForReuse() {
+        BookFacetIndex index = new BookFacetIndex(null);
+        index.index(book(HUGE, "Author A", 0));
+        index.index(book(HUGE + 10, "Author B", 3));
+        index.remove(HUGE);
+        index.index(book(1, "Author C", 3));
+        // An update re-indexes in place, moving the book between facet values.
+        index.index(book(HUGE + 10, "Author C", 0));
+
+        BookFacetIndex.Result inStock = index.query(List.of(), List.of(), true, 0, 10);
+        assertEquals(List.of(1L), inStock.getIds());
+        BookFacetIndex.Result all = index.query(List.of(), List.of(), null, 0, 10);
+        assertEquals(List.of(1L, HUGE + 10), all.getIds());
+        assertEquals(2, all.getFacets().get("author").get("Author C"));
+        assertFalse(all.getFacets().get("author").containsKey("Author A"));
+        assertFalse(all.getFacets().get("author").containsKey("Author B"));
+    }
+
+    private static Book book(long id, String author, int quantity) {
+        return new Book(id, "Title " + id, author, null, BigDecimal.TEN, quantity, null);
+    }
+}
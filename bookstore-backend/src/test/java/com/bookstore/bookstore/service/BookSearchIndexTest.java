@@ -0,0 +1,75 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookSearchIndexTest {
+
+    @Test
+    void tokenizesOnNonAlphanumericsAndDropsStopWords() {
+        assertEquals(List.of("c", "programming", "language", "2nd", "édition"),
+                BookSearchIndex.tokenize("The C Programming-Language (2nd Édition)"));
+        assertTrue(BookSearchIndex.tokenize("  of the, and  ").isEmpty());
+    }
+
+    @Test
+    void ranksTitleMatchesAboveAuthorAndDescriptionMatches() {
+        BookSearchIndex index = new BookSearchIndex(null);
+        index.index(book(1, "Cooking for Engineers", "Ann Smith", "Recipes with a side of kafka jokes."));
+        index.index(book(2, "Kafka on the Shore", "Haruki Murakami", "A novel."));
+        index.index(book(3, "Collected Stories", "Franz Kafka", "Short fiction."));
+        index.index(book(4, "Gardening", "Bob Jones", "Nothing relevant here."));
+
+        BookSearchIndex.Result result = index.search("Kafka", 0, 10);
+        assertEquals(List.of(2L, 3L, 1L), ids(result));
+        assertEquals(3, result.getTotalHits());
+
+        // A book matching both terms beats one matching a single term.
+        assertEquals(List.of(3L, 2L, 1L), ids(index.search("franz kafka", 0, 10)));
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        BookSearchIndex index = new BookSearchIndex(null);
+        index.index(book(1, "Distributed Systems", "Maarten van Steen", null));
+        index.index(book(2, "Designing Data-Intensive Applications", "Martin Kleppmann", "Distributed data."));
+
+        index.index(book(1, "Operating Systems", "Maarten van Steen", null));
+        assertEquals(List.of(2L), ids(index.search("distributed", 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("operating", 0, 10)));
+
+        index.remove(2L);
+        assertTrue(index.search("distributed", 0, 10).getHits().isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void pagesPastTheLastHitAreEmpty() {
+        BookSearchIndex index = new BookSearchIndex(null);
+        for (long id = 1; id <= 5; id++) {
+            index.index(book(id, "Java volume " + id, "Author", null));
+        }
+
+        assertEquals(List.of(5L), ids(index.search("java", 2, 2)));
+        // page * size overflows an int; it must not wrap around to a valid offset.
+        BookSearchIndex.Result farPage = index.search("java", Integer.MAX_VALUE, 10);
+        assertTrue(farPage.getHits().isEmpty());
+        assertEquals(5, farPage.getTotalHits());
+        assertTrue(index.search("java", Integer.MAX_VALUE / 2 + 1, 2).getHits().isEmpty());
+    }
+
+    private static List<Long> ids(BookSearchIndex.Result result) {
+        return result.getHits().stream().map(BookSearchIndex.Hit::getBookId).collect(Collectors.toList());
+    }
+
+    private static Book book(long id, String title, String author, String description) {
+        return new Book(id, title, author, description, BigDecimal.TEN, 1, null);
+    }
+}
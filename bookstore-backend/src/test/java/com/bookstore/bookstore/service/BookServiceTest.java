@@ -0,0 +1,64 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@SpringBootTest
+class BookServiceTest {
+
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private ResourceVersionTracker versionTracker;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Book> books = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAll(books);
+        books.clear();
+    }
+
+    @Test
+    void importInsideATransactionMovesTheCatalogVersionOnCommit() {
+        String before = versionTracker.catalogEtag();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            books.addAll(bookService.addBooks(List.of(book("Imported one"), book("Imported two"))));
+            assertEquals(before, versionTracker.catalogEtag());
+        });
+        assertNotEquals(before, versionTracker.catalogEtag());
+    }
+
+    @Test
+    void rolledBackImportKeepsTheCatalogVersion() {
+        String before = versionTracker.catalogEtag();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            bookService.addBooks(List.of(book("Rolled back")));
+            status.setRollbackOnly();
+        });
+        assertEquals(before, versionTracker.catalogEtag());
+    }
+
+    private static Book book(String title) {
+        return new Book(null, title, "Author", null, BigDecimal.TEN, 3, null);
+    }
+}
@@ -0,0 +1,75 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.payload.response.BookSuggestion;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures memory per entry and p99 suggest latency for a 100k-title catalog.
+ * Figures are logged; the assertions only guard against gross regressions. The measurement is
+ * tagged "benchmark" and only runs with -Pbenchmark.
+ */
+class BookSuggestIndexBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSuggestIndexBenchmarkTest.class);
+
+    private static final int TITLES = 100_000;
+    private static final int QUERIES = 20_000;
+    private static final String[] WORDS = {
+            "java", "spring", "data", "systems", "design", "patterns", "algorithms", "python", "learning",
+            "distributed", "modern", "practical", "effective", "clean", "code", "architecture", "network",
+            "security", "cloud", "kotlin", "rust", "compilers", "databases", "testing", "guide"
+    };
+
+    @Test
+    @Tag("benchmark")
+    void suggestAt100kTitles() {
+        Random random = new Random(42);
+        BookSuggestIndex index = new BookSuggestIndex(null, null);
+
+        long before = usedHeap();
+        for (long id = 1; id <= TITLES; id++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+                    + WORDS[random.nextInt(WORDS.length)] + " vol " + id;
+            String author = "Author " + random.nextInt(TITLES / 10);
+            index.index(new Book(id, title, author, null, BigDecimal.TEN, 1, null));
+        }
+        long bytesPerTitle = (usedHeap() - before) / TITLES;
+
+        long[] latencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+            long start = System.nanoTime();
+            index.suggest(prefix, 10);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        long p99Micros = latencies[(int) (QUERIES * 0.99)] / 1_000;
+        logger.info("BookSuggestIndex: ~{} bytes per title (title + author entries), p99 suggest latency {} us",
+                bytesPerTitle, p99Micros);
+
+        List<BookSuggestion> authors = index.suggest("author 1", 5);
+        assertEquals(5, authors.size());
+        assertTrue(p99Micros < 50_000, "p99 suggest latency regressed: " + p99Micros + " us");
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,62 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.payload.response.BookSuggestion;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookSuggestIndexTest {
+
+    @Test
+    void retractsValuesOnUpdateAndDelete() {
+        BookSuggestIndex index = new BookSuggestIndex(null, null);
+        index.index(book(1L, "Clean Code", "Robert Martin"));
+        index.index(book(2L, "Clean Architecture", "Robert Martin"));
+
+        List<BookSuggestion> suggestions = index.suggest("rob", 5);
+        assertEquals(1, suggestions.size());
+        assertEquals(2, suggestions.get(0).getWeight());
+
+        index.index(book(2L, "Refactoring", "Martin Fowler"));
+        assertEquals(1, index.suggest("clean", 5).size());
+        assertEquals(1, index.suggest("ROBERT", 5).get(0).getWeight());
+
+        index.remove(1L);
+        assertTrue(index.suggest("clean", 5).isEmpty());
+        assertTrue(index.suggest("rob", 5).isEmpty());
+    }
+
+    @Test
+    void ranksCompletionsByUnitsSoldAndKeepsSalesAcrossEdits() {
+        BookSuggestIndex index = new BookSuggestIndex(null, null);
+        index.index(book(1L, "Design Patterns", "Erich Gamma"));
+        index.index(book(2L, "Designing Data-Intensive Applications", "Martin Kleppmann"));
+        index.index(book(3L, "Design of Everyday Things", "Don Norman"));
+
+        index.recordSales(Map.of(2L, 5, 3L, 2, 99L, 7));
+        assertEquals(List.of("Designing Data-Intensive Applications", "Design of Everyday Things", "Design Patterns"),
+                texts(index.suggest("design", 3)));
+        assertEquals(6, index.suggest("design", 1).get(0).getWeight());
+
+        // Renaming a book keeps its sales; only a new sale moves it.
+        index.index(book(3L, "The Design of Everyday Things", "Don Norman"));
+        index.recordSales(Map.of(1L, 10));
+        assertEquals(List.of("Design Patterns", "Designing Data-Intensive Applications"), texts(index.suggest("design", 3)));
+        assertEquals(3, index.suggest("the design", 1).get(0).getWeight());
+    }
+
+    private static List<String> texts(List<BookSuggestion> suggestions) {
+        return suggestions.stream().map(BookSuggestion::getText).collect(Collectors.toList());
+    }
+
+    private static Book book(long id, String title, String author) {
+        return new Book(id, title, author, null, BigDecimal.TEN, 1, null);
+    }
+}
@@ -0,0 +1,123 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.CartItem;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.CartItemRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Races many adds of the same books into one cart and checks they converge on a single line per
+ * book holding every unit added.
+ */
+@SpringBootTest
+class CartUpsertConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int ADDS_PER_THREAD = 50;
+    private static final int BOOKS = 4;
+    private static final int ID_BLOCKS = 120;
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private final List<Book> books = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        cartItemRepository.deleteByUser(user);
+        userRepository.delete(user);
+        bookRepository.deleteAll(books);
+        books.clear();
+    }
+
+    @Test
+    void concurrentAddsConvergeOnOneLinePerBook() throws Exception {
+        user = userRepository.save(new User("cart-upsert", "cart-upsert@test", "unused", "ROLE_USER"));
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(bookRepository.save(new Book(null, "Upsert " + i, "Author", null, BigDecimal.TEN, 10, null)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                        cartService.addBookToCart(user, books.get((offset + i) % BOOKS).getId(), 1);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<CartItem> lines = cartItemRepository.findByUser(user);
+        assertEquals(BOOKS, lines.size());
+        for (CartItem line : lines) {
+            assertEquals(THREADS * ADDS_PER_THREAD / BOOKS, line.getQuantity());
+        }
+    }
+
+    @Test
+    void upsertedAndPersistedLinesNeverShareAnId() {
+        user = userRepository.save(new User("cart-ids", "cart-ids@test", "unused", "ROLE_USER"));
+        // Enough lines to run through several of the pooled optimizer's id blocks on both paths.
+        for (int i = 0; i < 2 * ID_BLOCKS; i++) {
+            books.add(bookRepository.save(new Book(null, "Ids " + i, "Author", null, BigDecimal.TEN, 10, null)));
+        }
+        for (int i = 0; i < ID_BLOCKS; i++) {
+            cartItemRepository.upsertQuantity(user.getId(), books.get(2 * i).getId(), 1, LocalDateTime.now());
+            cartItemRepository.save(new CartItem(null, user, books.get(2 * i + 1), 1));
+        }
+
+        List<CartItem> lines = cartItemRepository.findByUser(user);
+        assertEquals(2 * ID_BLOCKS, lines.size());
+        assertEquals(2 * ID_BLOCKS, lines.stream().map(CartItem::getId).distinct().count());
+    }
+
+    @Test
+    void databaseRejectsDuplicateLines() {
+        user = userRepository.save(new User("cart-unique", "cart-unique@test", "unused", "ROLE_USER"));
+        Book book = bookRepository.save(new Book(null, "Unique", "Author", null, BigDecimal.TEN, 10, null));
+        books.add(book);
+        cartItemRepository.save(new CartItem(null, user, book, 1));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> cartItemRepository.save(new CartItem(null, user, book, 1)));
+    }
+}
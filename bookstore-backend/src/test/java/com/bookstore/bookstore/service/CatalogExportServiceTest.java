@@ -0,0 +1,48 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.repository.BookRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class CatalogExportServiceTest {
+
+    @Autowired
+    private CatalogExportService exportService;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Book book;
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.delete(book);
+    }
+
+    @Test
+    void exportDoesNotFillTheSecondLevelCache() throws Exception {
+        book = bookRepository.save(new Book(null, "Exported title", "Author", "Exported description", BigDecimal.TEN, 2, null));
+        entityManagerFactory.getCache().evict(Book.class);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(CatalogExportService.Format.NDJSON, out);
+
+        String exported = out.toString(StandardCharsets.UTF_8);
+        assertTrue(exported.contains("Exported title"));
+        assertTrue(exported.contains("Exported description"));
+        assertFalse(entityManagerFactory.getCache().contains(Book.class, book.getId()));
+    }
+}
@@ -0,0 +1,159 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.exception.InsufficientStockException;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.CartItem;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.CartItemRepository;
+import com.bookstore.bookstore.repository.OrderRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Fires hundreds of simultaneous checkouts and reports throughput as the share of carts holding
+ * the same hot title grows. Figures are logged; the assertions check that stock is never oversold.
+ * The throughput sweep is tagged "benchmark" and only runs with -Pbenchmark.
+ */
+@SpringBootTest
+class CheckoutContentionBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutContentionBenchmarkTest.class);
+
+    private static final int CHECKOUTS = 200;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Book> books = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (User user : users) {
+            orderRepository.deleteAll(orderRepository.findByUser(user));
+            cartItemRepository.deleteByUser(user);
+        }
+        userRepository.deleteAll(users);
+        bookRepository.deleteAll(books);
+        users.clear();
+        books.clear();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void checkoutThroughputVersusContention() throws Exception {
+        for (int hotPercent : new int[] { 0, 50, 100 }) {
+            Book hot = createBook(CHECKOUTS);
+            List<String> buyers = new ArrayList<>();
+            for (int i = 0; i < CHECKOUTS; i++) {
+                Book book = i * 100 < hotPercent * CHECKOUTS ? hot : createBook(1);
+                buyers.add(createBuyer("hot" + hotPercent + "-" + i, book, 1));
+            }
+
+            Outcome outcome = checkoutConcurrently(buyers);
+            logger.info("Checkout: {}% of {} concurrent carts on one title -> {} checkouts/s ({} placed)",
+                    hotPercent, CHECKOUTS, Math.round(outcome.placed * 1000.0 / outcome.millis), outcome.placed);
+            assertEquals(CHECKOUTS, outcome.placed);
+            assertEquals(CHECKOUTS - CHECKOUTS * hotPercent / 100, quantityOf(hot));
+        }
+    }
+
+    @Test
+    void hotTitleIsNeverOversold() throws Exception {
+        int stock = CHECKOUTS * 3 / 4;
+        Book hot = createBook(stock);
+        List<String> buyers = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            buyers.add(createBuyer("oversell-" + i, hot, 1));
+        }
+
+        Outcome outcome = checkoutConcurrently(buyers);
+        assertEquals(stock, outcome.placed);
+        assertEquals(CHECKOUTS - stock, outcome.rejected);
+        assertEquals(0, quantityOf(hot));
+    }
+
+    private static final class Outcome {
+        int placed;
+        int rejected;
+        long millis;
+    }
+
+    private Outcome checkoutConcurrently(List<String> usernames) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(usernames.size());
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String username : usernames) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.placeOrder(username);
+                        placed.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+            Outcome outcome = new Outcome();
+            outcome.millis = Math.max(1, (System.nanoTime() - begin) / 1_000_000);
+            outcome.placed = placed.get();
+            outcome.rejected = rejected.get();
+            return outcome;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Book createBook(int quantity) {
+        Book book = bookRepository.save(new Book(null, "Checkout bench", "Bencher", null, BigDecimal.TEN, quantity, null));
+        books.add(book);
+        return book;
+    }
+
+    private String createBuyer(String username, Book book, int quantity) {
+        User user = userRepository.save(new User(username, username + "@bench.test", "unused", "ROLE_USER"));
+        users.add(user);
+        cartItemRepository.save(new CartItem(null, user, book, quantity));
+        return username;
+    }
+
+    private int quantityOf(Book book) {
+        return bookRepository.findById(book.getId()).orElseThrow().getQuantity();
+    }
+}
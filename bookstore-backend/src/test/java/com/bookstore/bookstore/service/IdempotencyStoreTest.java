@@ -0,0 +1,112 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.payload.response.MessageResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyStoreTest {
+
+    private static final int DUPLICATES = 16;
+
+    @Test
+    void concurrentDuplicatesExecuteOnce() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(60, 100, 10_000);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(DUPLICATES);
+        List<Future<ResponseEntity<?>>> responses = new ArrayList<>();
+        try {
+            for (int i = 0; i < DUPLICATES; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return store.execute("user", "key", () -> {
+                        executions.incrementAndGet();
+                        sleep(200);
+                        return new ResponseEntity<>("order-1", HttpStatus.CREATED);
+                    });
+                }));
+            }
+            start.countDown();
+
+            int replayed = 0;
+            for (Future<ResponseEntity<?>> future : responses) {
+                ResponseEntity<?> response = future.get(10, TimeUnit.SECONDS);
+                assertEquals(HttpStatus.CREATED, response.getStatusCode());
+                assertEquals("order-1", response.getBody());
+                if (response.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)) {
+                    replayed++;
+                }
+            }
+            assertEquals(1, executions.get());
+            assertEquals(DUPLICATES - 1, replayed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void duplicateGivesUpWithConflictWhileTheOriginalIsStillRunning() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(60, 100, 50);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResponseEntity<?>> original = executor.submit(() -> store.execute("user", "key", () -> {
+                running.countDown();
+                await(release);
+                return new ResponseEntity<>("order-1", HttpStatus.CREATED);
+            }));
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+
+            ResponseEntity<?> duplicate = store.execute("user", "key", () -> {
+                throw new AssertionError("duplicate executed");
+            });
+            assertEquals(HttpStatus.CONFLICT, duplicate.getStatusCode());
+            assertInstanceOf(MessageResponse.class, duplicate.getBody());
+
+            release.countDown();
+            assertFalse(original.get(10, TimeUnit.SECONDS).getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER));
+            ResponseEntity<?> retry = store.execute("user", "key", () -> {
+                throw new AssertionError("retry executed");
+            });
+            assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+            assertTrue(retry.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
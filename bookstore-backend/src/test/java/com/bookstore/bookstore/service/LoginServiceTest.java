@@ -0,0 +1,77 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.exception.LoginCapacityExceededException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoginServiceTest {
+
+    @Test
+    void fullQueueIsRejectedAtOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        LoginService loginService = new LoginService(blockingManager(release), 1, 1, 60_000);
+        try {
+            CompletableFuture<Authentication> running = loginService.authenticate("first", "pw");
+            CompletableFuture<Authentication> queued = loginService.authenticate("second", "pw");
+            awaitQueued(loginService, 1);
+
+            assertThrows(LoginCapacityExceededException.class, () -> loginService.authenticate("third", "pw"));
+
+            release.countDown();
+            assertEquals("first", running.get(5, TimeUnit.SECONDS).getName());
+            assertEquals("second", queued.get(5, TimeUnit.SECONDS).getName());
+            assertEquals(2L, loginService.stats().get("succeeded"));
+            assertEquals(1L, loginService.stats().get("rejected"));
+        } finally {
+            loginService.shutdown();
+        }
+    }
+
+    @Test
+    void loginThatWaitedTooLongIsNotVerified() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        LoginService loginService = new LoginService(blockingManager(release), 1, 10, 50);
+        try {
+            CompletableFuture<Authentication> running = loginService.authenticate("first", "pw");
+            CompletableFuture<Authentication> queued = loginService.authenticate("second", "pw");
+            Thread.sleep(200);
+            release.countDown();
+
+            assertEquals("first", running.get(5, TimeUnit.SECONDS).getName());
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(LoginCapacityExceededException.class, failure.getCause());
+            assertEquals(1L, loginService.stats().get("expiredInQueue"));
+        } finally {
+            loginService.shutdown();
+        }
+    }
+
+    private static AuthenticationManager blockingManager(CountDownLatch release) {
+        return request -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new UsernamePasswordAuthenticationToken(request.getName(), null, Collections.emptyList());
+        };
+    }
+
+    private static void awaitQueued(LoginService loginService, long depth) throws InterruptedException {
+        for (int i = 0; i < 500 && loginService.stats().get("queueDepth") < depth; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
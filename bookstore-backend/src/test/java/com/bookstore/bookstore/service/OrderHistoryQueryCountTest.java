@@ -0,0 +1,135 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.Order;
+import com.bookstore.bookstore.model.OrderItem;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.payload.response.OrderPageResponse;
+import com.bookstore.bookstore.payload.response.OrderResponse;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.OrderRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import com.bookstore.bookstore.support.QueryCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static com.bookstore.bookstore.support.QueryCounter.assertQueryCount;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pins the number of SQL statements the order history read paths cost, including mapping every
+ * order to its response, so an N+1 regression fails the build. The measured calls run inside one
+ * session, as they do under open-in-view, so lazy loads show up as extra statements.
+ */
+@SpringBootTest(properties = {QueryCounter.PROPERTY, QueryCounter.NO_SECOND_LEVEL_CACHE, QueryCounter.NO_QUERY_CACHE})
+class OrderHistoryQueryCountTest {
+
+    private static final String USERNAME = "history-query-count";
+    private static final int ORDERS = 6;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+    private final List<Book> books = new ArrayList<>();
+    private final List<Long> orderIdsNewestFirst = new ArrayList<>();
+
+    @BeforeEach
+    void createHistory() {
+        user = userRepository.save(new User(USERNAME, USERNAME + "@test", "unused", "ROLE_USER"));
+        for (int i = 0; i < ITEMS_PER_ORDER * 2; i++) {
+            books.add(bookRepository.save(new Book(null, "History " + i, "Author " + i, null, BigDecimal.TEN, 5, null)));
+        }
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setUser(user);
+            // Two orders share each timestamp to exercise the id tie-break.
+            order.setOrderDate(start.plusDays(i / 2));
+            order.setStatus(Order.OrderStatus.PENDING);
+            order.setTotalAmount(BigDecimal.valueOf(30));
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                order.addOrderItem(new OrderItem(null, null, books.get((i + j) % books.size()), 1, BigDecimal.TEN));
+            }
+            orderRepository.save(order);
+        }
+        // Ties on order date are broken by id, newest id first.
+        orderRepository.findByUser(user).stream()
+                .sorted((a, b) -> a.getOrderDate().equals(b.getOrderDate())
+                        ? b.getId().compareTo(a.getId()) : b.getOrderDate().compareTo(a.getOrderDate()))
+                .forEach(order -> orderIdsNewestFirst.add(order.getId()));
+    }
+
+    @AfterEach
+    void deleteHistory() {
+        orderRepository.deleteAll(orderRepository.findByUser(user));
+        userRepository.delete(user);
+        bookRepository.deleteAll(books);
+        books.clear();
+    }
+
+    @Test
+    void fullHistoryCostsTwoQueries() {
+        List<OrderResponse> responses = assertQueryCount(2, () -> inSession(() -> orderService.getUserOrders(USERNAME).stream()
+                .map(OrderResponse::new)
+                .collect(Collectors.toList())));
+
+        assertEquals(orderIdsNewestFirst, responses.stream().map(OrderResponse::getId).collect(Collectors.toList()));
+        assertTrue(responses.stream().allMatch(response -> response.getOrderItems().size() == ITEMS_PER_ORDER));
+    }
+
+    @Test
+    void historyPagesCostThreeQueriesEach() {
+        OrderPageResponse first = assertQueryCount(3, () -> inSession(() -> orderService.getUserOrderPage(USERNAME, null, 4)));
+        assertTrue(first.isHasMore());
+        assertEquals(orderIdsNewestFirst.subList(0, 4), ids(first));
+
+        OrderPageResponse second = assertQueryCount(3,
+                () -> inSession(() -> orderService.getUserOrderPage(USERNAME, first.getNextCursor(), 4)));
+        assertFalse(second.isHasMore());
+        assertNull(second.getNextCursor());
+        assertEquals(orderIdsNewestFirst.subList(4, ORDERS), ids(second));
+        assertEquals("History 0", second.getItems().get(second.getItems().size() - 1).getOrderItems().get(0).getBookTitle());
+    }
+
+    @Test
+    void singleOrderCostsTwoQueries() {
+        Long orderId = orderIdsNewestFirst.get(0);
+        OrderResponse response = assertQueryCount(2, () -> inSession(() -> new OrderResponse(orderService.getOrderById(USERNAME, orderId))));
+        assertEquals(ITEMS_PER_ORDER, response.getOrderItems().size());
+    }
+
+    private <T> T inSession(Supplier<T> action) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template.execute(status -> action.get());
+    }
+
+    private static List<Long> ids(OrderPageResponse page) {
+        return page.getItems().stream().map(OrderResponse::getId).collect(Collectors.toList());
+    }
+}
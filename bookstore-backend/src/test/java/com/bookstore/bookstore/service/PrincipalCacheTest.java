@@ -0,0 +1,67 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.UserRepository;
+import com.bookstore.bookstore.support.QueryCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static com.bookstore.bookstore.support.QueryCounter.assertQueryCount;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {QueryCounter.PROPERTY, QueryCounter.NO_SECOND_LEVEL_CACHE, QueryCounter.NO_QUERY_CACHE})
+class PrincipalCacheTest {
+
+    private static final String USERNAME = "principal-cache";
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @AfterEach
+    void cleanUp() {
+        if (userRepository.existsById(user.getId())) {
+            userService.deleteUser(user.getId());
+        }
+    }
+
+    @Test
+    void repeatedLoadsAreServedFromTheCache() {
+        user = userRepository.save(new User(USERNAME, USERNAME + "@test", "hash", "ROLE_USER"));
+
+        AuthenticatedUser first = (AuthenticatedUser) assertQueryCount(1, () -> userDetailsService.loadUserByUsername(USERNAME));
+        AuthenticatedUser second = (AuthenticatedUser) assertQueryCount(0, () -> userDetailsService.loadUserByUsername(USERNAME));
+
+        assertEquals(user.getId(), second.getId());
+        assertEquals(first, second);
+        User entity = assertQueryCount(0, () -> userDetailsService.loadUserEntity(second));
+        assertEquals(user.getId(), entity.getId());
+        assertEquals(USERNAME, entity.getUsername());
+    }
+
+    @Test
+    void updateAndDeleteInvalidateTheCachedPrincipal() {
+        user = userRepository.save(new User(USERNAME, USERNAME + "@test", "hash", "ROLE_USER"));
+        userDetailsService.loadUserByUsername(USERNAME);
+
+        User change = new User(USERNAME, USERNAME + "@test", null, "ROLE_ADMIN");
+        userService.updateUser(user.getId(), change);
+        AuthenticatedUser promoted = (AuthenticatedUser) userDetailsService.loadUserByUsername(USERNAME);
+        assertEquals("ROLE_ADMIN", promoted.getRole());
+        assertEquals("ROLE_ADMIN", promoted.getAuthorities().iterator().next().getAuthority());
+
+        userService.deleteUser(user.getId());
+        assertFalse(userRepository.existsById(user.getId()));
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername(USERNAME));
+    }
+}
@@ -0,0 +1,142 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.exception.InsufficientStockException;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers the stock engine from many threads and checks that every successful delta is reflected
+ * in the final quantity (no lost updates) and that no quantity ever goes negative. The full-size
+ * single-row hammering is tagged "benchmark" and only runs with -Pbenchmark.
+ */
+@SpringBootTest
+class StockServiceConcurrencyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockServiceConcurrencyTest.class);
+
+    private static final int THREADS = 64;
+    private static final int OPERATIONS_PER_THREAD = 200;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final List<Book> created = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAll(created);
+        created.clear();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void concurrentAdjustmentsLoseNoUpdates() throws Exception {
+        Book book = createBook(100);
+        AtomicLong applied = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+
+        runConcurrently(random -> {
+            int delta = random.nextBoolean() ? 1 + random.nextInt(3) : -(1 + random.nextInt(4));
+            try {
+                int quantity = stockService.adjust(book.getId(), delta).getQuantity();
+                assertTrue(quantity >= 0, "quantity went negative: " + quantity);
+                applied.addAndGet(delta);
+            } catch (InsufficientStockException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        int finalQuantity = bookRepository.findById(book.getId()).orElseThrow().getQuantity();
+        logger.info("StockService: {} adjustments from {} threads, {} rejected for insufficient stock",
+                THREADS * OPERATIONS_PER_THREAD, THREADS, rejected.get());
+        assertEquals(100 + applied.get(), finalQuantity);
+        assertTrue(finalQuantity >= 0);
+    }
+
+    @Test
+    void concurrentBulkTransfersConserveStock() throws Exception {
+        Book first = createBook(50);
+        Book second = createBook(50);
+
+        // Opposite-direction transfers would deadlock if rows were not locked in a fixed order.
+        runConcurrently(random -> {
+            int amount = 1 + random.nextInt(5);
+            boolean forward = random.nextBoolean();
+            try {
+                stockService.adjustAll(Map.of(
+                        first.getId(), forward ? -amount : amount,
+                        second.getId(), forward ? amount : -amount));
+            } catch (InsufficientStockException e) {
+                // All or nothing: the other half of the transfer must not have been applied.
+            }
+        });
+
+        int total = bookRepository.findById(first.getId()).orElseThrow().getQuantity()
+                + bookRepository.findById(second.getId()).orElseThrow().getQuantity();
+        assertEquals(100, total);
+    }
+
+    @Test
+    void overdrawIsRejectedAndLeavesStockUnchanged() {
+        Book book = createBook(2);
+        assertThrows(InsufficientStockException.class, () -> stockService.adjust(book.getId(), -3));
+        assertEquals(2, bookRepository.findById(book.getId()).orElseThrow().getQuantity());
+    }
+
+    private Book createBook(int quantity) {
+        Book book = bookRepository.save(new Book(null, "Stock test", "Tester", null, BigDecimal.TEN, quantity, null));
+        created.add(book);
+        return book;
+    }
+
+    private interface Operation {
+        void run(Random random);
+    }
+
+    private void runConcurrently(Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                long seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        operation.run(random);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.bookstore.bookstore.service;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.CartItem;
+import com.bookstore.bookstore.model.User;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.repository.CartItemRepository;
+import com.bookstore.bookstore.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "cart.store.mode=write-behind",
+        "cart.store.journal-dir=target/cart-journal-test",
+        "cart.store.flush-interval-ms=3600000"
+})
+class WriteBehindCartStoreTest {
+
+    private static final Path JOURNAL_DIR = Paths.get("target/cart-journal-test");
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private WriteBehindCartStore cartStore;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Book> books = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (User user : users) {
+            cartService.clearCart(user);
+        }
+        userRepository.deleteAll(users);
+        bookRepository.deleteAll(books);
+        users.clear();
+        books.clear();
+    }
+
+    @Test
+    void repeatedMutationsReachTheDatabaseAsOneRowWrite() {
+        User user = createUser("write-behind-coalesce");
+        Book book = createBook();
+        for (int i = 0; i < 50; i++) {
+            cartService.addBookToCart(user, book.getId(), 1);
+        }
+
+        assertEquals(0, cartItemRepository.findByUser(user).size());
+        assertEquals(50, cartService.getUserCart(user).get(0).getQuantity());
+        assertEquals(50, cartService.getCartTotals(user).getItemCount());
+
+        assertTrue(cartStore.flush());
+        List<CartItem> rows = cartItemRepository.findByUser(user);
+        assertEquals(1, rows.size());
+        assertEquals(50, rows.get(0).getQuantity());
+
+        // The id handed out before the flush still addresses the line afterwards.
+        cartService.updateCartItemQuantity(user, -book.getId(), 0);
+        assertTrue(cartStore.flush());
+        assertEquals(0, cartItemRepository.findByUser(user).size());
+    }
+
+    @Test
+    void rolledBackClearKeepsPendingChanges() {
+        User user = createUser("write-behind-rollback");
+        Book book = createBook();
+        cartService.addBookToCart(user, book.getId(), 2);
+        assertTrue(cartStore.flush());
+        cartService.addBookToCart(user, book.getId(), 3);
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            cartService.clearCart(user);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(5, cartService.getUserCart(user).get(0).getQuantity());
+        assertTrue(cartStore.flush());
+        assertEquals(5, cartItemRepository.findByUser(user).get(0).getQuantity());
+    }
+
+    @Test
+    void clearIsJournaledOnlyOnceItCommits() {
+        User user = createUser("write-behind-clear-journal");
+        Book book = createBook();
+        cartService.addBookToCart(user, book.getId(), 2);
+        String clearRecord = "C " + user.getId();
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            cartService.clearCart(user);
+            // A crash now must replay the pending add, so no clear record may hide it yet.
+            assertFalse(journalRecords().contains(clearRecord));
+        });
+        assertTrue(journalRecords().contains(clearRecord));
+
+        cartService.addBookToCart(user, book.getId(), 1);
+        transaction.executeWithoutResult(status -> {
+            cartService.clearCart(user);
+            status.setRollbackOnly();
+        });
+        assertEquals(1, journalRecords().stream().filter(clearRecord::equals).count());
+    }
+
+    @Test
+    void readsDuringACheckoutDoNotLoadTheRowsBeingDeleted() throws Exception {
+        User user = createUser("write-behind-clear-race");
+        Book book = createBook();
+        // Rows the store has never loaded, so the next read has to go to the database.
+        cartItemRepository.save(new CartItem(null, user, book, 4));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.executeWithoutResult(status -> {
+                cartService.clearCart(user);
+                // Another request reads the cart while the delete is still uncommitted.
+                try {
+                    assertTrue(executor.submit(() -> cartService.getUserCart(user)).get(10, TimeUnit.SECONDS).isEmpty());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cartService.getUserCart(user).isEmpty());
+        assertTrue(cartStore.flush());
+        assertEquals(0, cartItemRepository.findByUser(user).size());
+    }
+
+    @Test
+    void journalLeftByACrashIsReplayedOnStartup() throws IOException {
+        User user = createUser("write-behind-replay");
+        User cleared = createUser("write-behind-replay-cleared");
+        Book kept = createBook();
+        Book removed = createBook();
+        cartItemRepository.save(new CartItem(null, user, removed, 4));
+        cartItemRepository.save(new CartItem(null, cleared, kept, 1));
+
+        Path directory = Files.createTempDirectory("cart-journal");
+        String segment = "S " + user.getId() + " " + kept.getId() + " 2\n"
+                + "S " + user.getId() + " " + kept.getId() + " 7\n"
+                + "S " + user.getId() + " " + removed.getId() + " 0\n"
+                + "S " + cleared.getId() + " " + kept.getId() + " 3\n"
+                + "C " + cleared.getId() + "\n"
+                + "S " + user.getId() + " " + removed.getId() + " 9"; // torn, never acknowledged
+        Files.writeString(directory.resolve("cart-000000000001.journal"), segment, StandardCharsets.UTF_8);
+
+        WriteBehindCartStore restarted = new WriteBehindCartStore(cartItemRepository, bookRepository, userRepository,
+                transactionManager, WriteBehindCartStore.WRITE_THROUGH, 1, directory.toString(), false, 60);
+        restarted.recover();
+
+        List<CartItem> rows = cartItemRepository.findByUser(user);
+        assertEquals(1, rows.size());
+        assertEquals(kept.getId(), rows.get(0).getBook().getId());
+        assertEquals(7, rows.get(0).getQuantity());
+        assertEquals(1, cartItemRepository.findByUser(cleared).get(0).getQuantity());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        Files.delete(directory);
+        cartItemRepository.deleteByUser(user);
+        cartItemRepository.deleteByUser(cleared);
+    }
+
+    private static List<String> journalRecords() {
+        List<String> records = new ArrayList<>();
+        try (Stream<Path> segments = Files.list(JOURNAL_DIR)) {
+            for (Path segment : segments.sorted().collect(Collectors.toList())) {
+                records.addAll(Files.readAllLines(segment, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    private User createUser(String username) {
+        User user = userRepository.save(new User(username, username + "@test", "unused", "ROLE_USER"));
+        users.add(user);
+        return user;
+    }
+
+    private Book createBook() {
+        Book book = bookRepository.save(new Book(null, "Write-behind", "Author", null, BigDecimal.TEN, 10, null));
+        books.add(book);
+        return book;
+    }
+}
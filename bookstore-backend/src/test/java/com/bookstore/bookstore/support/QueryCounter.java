@@ -0,0 +1,60 @@
+package com.bookstore.bookstore.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, so tests can pin the number of
+ * queries a code path costs and fail on N+1 regressions. Register it on the test context with
+ * {@link #PROPERTY}.
+ */
+public class QueryCounter implements StatementInspector {
+
+    public static final String PROPERTY =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.bookstore.bookstore.support.QueryCounter";
+
+    // Together these turn the second-level and query caches off, so pinned counts are the database
+    // cost of a path and do not depend on what earlier tests left in the caches.
+    public static final String NO_SECOND_LEVEL_CACHE = "spring.jpa.properties.hibernate.cache.use_second_level_cache=false";
+    public static final String NO_QUERY_CACHE = "spring.jpa.properties.hibernate.cache.use_query_cache=false";
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        // Pooled id allocation hits the sequence once per 50 inserts, wherever the pool runs out;
+        // counting it would make insert paths flaky.
+        if (!sql.toLowerCase(Locale.ROOT).contains("next value for")) {
+            STATEMENTS.get().add(sql);
+        }
+        return sql;
+    }
+
+    /** Runs {@code action} and returns the number of statements it issued on this thread. */
+    public static int countQueries(Runnable action) {
+        STATEMENTS.get().clear();
+        action.run();
+        int count = STATEMENTS.get().size();
+        STATEMENTS.get().clear();
+        return count;
+    }
+
+    /**
+     * Runs {@code action} and asserts it issued exactly {@code expected} statements on this thread.
+     * @return The action's result.
+     */
+    public static <T> T assertQueryCount(int expected, Supplier<T> action) {
+        STATEMENTS.get().clear();
+        T result = action.get();
+        List<String> statements = new ArrayList<>(STATEMENTS.get());
+        STATEMENTS.get().clear();
+        assertEquals(expected, statements.size(), () -> "Unexpected SQL statement count:\n" + String.join("\n", statements));
+        return result;
+    }
+}
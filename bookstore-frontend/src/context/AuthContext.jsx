@@ -92,12 +92,19 @@ export const AuthProvider = ({ children }) => {
     }, []); 
 
     const logout = useCallback(() => {
+        // Revoke the token server-side too; the local logout does not wait for it.
+        if (user && user.accessToken) {
+            fetch(`${import.meta.env.VITE_API_BASE_URL}/api/auth/logout`, {
+                method: 'POST',
+                headers: { 'Authorization': `Bearer ${user.accessToken}` },
+            }).catch((error) => console.error('Token revocation failed:', error));
+        }
         setUser(null);
         localStorage.removeItem('user');
         localStorage.removeItem('token');
         console.log('User logged out.');
         navigate('/login');
-    }, [navigate]);
+    }, [navigate, user]);
 
     const loadUserEntityByUsername = useCallback((uname) => {
         if (user && user.username === uname) {
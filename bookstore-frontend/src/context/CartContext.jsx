@@ -4,15 +4,96 @@ import { useAuth } from './AuthContext';
 
 export const CartContext = createContext(null);
 
+// Books added while logged out, merged into the server cart on the next login.
+const GUEST_CART_KEY = 'guestCart';
+// cart.batch.max-operations on the server: larger batches are rejected whole.
+const MAX_BATCH_OPERATIONS = 200;
+
+const isValidGuestLine = (line) =>
+    line != null && Number.isSafeInteger(line.bookId) && line.bookId > 0
+    && Number.isSafeInteger(line.quantity) && line.quantity > 0;
+
+// Lines the server would reject as malformed (left by older versions or edited by hand) are dropped.
+const readGuestCart = () => {
+    try {
+        const lines = JSON.parse(localStorage.getItem(GUEST_CART_KEY));
+        return Array.isArray(lines) ? lines.filter(isValidGuestLine) : [];
+    } catch {
+        return [];
+    }
+};
+
+const writeGuestCart = (lines) => {
+    if (lines.length === 0) {
+        localStorage.removeItem(GUEST_CART_KEY);
+    } else {
+        localStorage.setItem(GUEST_CART_KEY, JSON.stringify(lines));
+    }
+};
+
+// Shaped like the server's cart lines; a guest line is identified by its book id.
+const toGuestItem = ({ bookId, quantity }, book) => ({
+    id: bookId,
+    bookId,
+    bookTitle: book.title,
+    bookAuthor: book.author,
+    bookImageUrl: book.imageUrl,
+    bookPrice: book.price,
+    quantity,
+    subtotal: book.price * quantity,
+});
+
+const toAddOperations = (lines) => lines.map(({ bookId, quantity }) => ({ op: 'add', bookId, quantity }));
+
+// A failure worth retrying on the next login rather than a batch the server will never accept.
+const isTransientFailure = ({ status }) => status === undefined || status >= 500 || status === 401 || status === 403;
+
 export const CartProvider = ({ children }) => {
     const { user } = useAuth(); 
     const [cartItems, setCartItems] = useState([]);
     const [loadingCart, setLoadingCart] = useState(true);
     const [cartError, setCartError] = useState(null);
-    const fetchCartItems = useCallback(async () => {
-        if (!user || !user.accessToken) {
+
+    // Renders the guest cart with the current catalog details, dropping books deleted since.
+    const fetchGuestCartItems = useCallback(async () => {
+        const guestCart = readGuestCart();
+        setCartError(null);
+        if (guestCart.length === 0) {
+            setCartItems([]);
+            setLoadingCart(false);
+            return;
+        }
+
+        setLoadingCart(true);
+        try {
+            const books = await Promise.all(guestCart.map(async ({ bookId }) => {
+                const response = await fetch(`${import.meta.env.VITE_API_BASE_URL}/api/books/${bookId}`);
+                if (response.status === 404) {
+                    return null;
+                }
+                if (!response.ok) {
+                    throw new Error(`Server error ${response.status}`);
+                }
+                return response.json();
+            }));
+            const lines = guestCart.filter((line, index) => books[index] !== null);
+            if (lines.length !== guestCart.length) {
+                writeGuestCart(lines);
+            }
+            setCartItems(lines.map(line => toGuestItem(line, books[guestCart.indexOf(line)])));
+        } catch (error) {
+            setCartError('Network error or unexpected issue fetching cart.');
+            toast.error(`Network error loading cart: ${error.message}`);
+            console.error('Network error fetching guest cart:', error);
             setCartItems([]);
+        } finally {
             setLoadingCart(false);
+        }
+    }, []);
+
+    const fetchCartItems = useCallback(async () => {
+        if (!user || !user.accessToken) {
+            await fetchGuestCartItems();
             return;
         }
 
@@ -45,11 +126,22 @@ export const CartProvider = ({ children }) => {
         } finally {
             setLoadingCart(false);
         }
-    }, [user]);
+    }, [user, fetchGuestCartItems]);
+
+    // Sets a guest line's quantity in localStorage and on screen; 0 or less removes it.
+    const setGuestQuantity = useCallback((bookId, quantity) => {
+        writeGuestCart(readGuestCart()
+            .map(line => (line.bookId === bookId ? { ...line, quantity } : line))
+            .filter(line => line.quantity > 0));
+        setCartItems(items => items
+            .map(item => (item.bookId === bookId ? { ...item, quantity, subtotal: item.bookPrice * quantity } : item))
+            .filter(item => item.quantity > 0));
+    }, []);
 
     const removeFromCart = useCallback(async (cartItemId) => {
         if (!user || !user.accessToken) {
-            toast.error("Please log in to modify cart items.");
+            setGuestQuantity(cartItemId, 0);
+            toast.info("Item removed from cart.");
             return;
         }
 
@@ -74,11 +166,104 @@ export const CartProvider = ({ children }) => {
             toast.error(`Network error removing from cart: ${error.message}`);
             console.error('Network error removing from cart:', error);
         }
+    }, [user, setGuestQuantity]);
+
+    // Resolves to { ok: true, items } with the resulting cart, or { ok: false, status, message };
+    // status is undefined when the request did not reach the server.
+    const postCartOperations = useCallback(async (operations) => {
+        try {
+            const response = await fetch(`${import.meta.env.VITE_API_BASE_URL}/api/cart/batch`, {
+                method: 'POST',
+                headers: {
+                    'Content-Type': 'application/json',
+                    'Authorization': `Bearer ${user.accessToken}`
+                },
+                body: JSON.stringify({ operations })
+            });
+
+            if (response.ok) {
+                return { ok: true, status: response.status, items: await response.json() };
+            }
+            const errorData = await response.json().catch(() => ({ message: 'Failed to update cart: Server error' }));
+            return { ok: false, status: response.status, message: errorData.message };
+        } catch (error) {
+            return { ok: false, message: error.message };
+        }
     }, [user]);
 
+    const applyCartOperations = useCallback(async (operations) => {
+        if (!user || !user.accessToken) {
+            toast.error("Please log in to modify the cart.");
+            return false;
+        }
+
+        const result = await postCartOperations(operations);
+        if (result.ok) {
+            setCartItems(result.items);
+            return true;
+        }
+        if (result.status === undefined) {
+            toast.error(`Network error updating cart: ${result.message}`);
+            console.error('Network error applying cart operations:', result.message);
+        } else {
+            toast.error(`Error updating cart: ${result.message}`);
+            console.error('Failed to apply cart operations:', result);
+        }
+        return false;
+    }, [user, postCartOperations]);
+
+    // Merge on login: the guest lines are added in batches the server accepts, and each merged
+    // batch leaves localStorage at once, so a later failure never makes the next login add it
+    // twice. A rejected batch is halved until the offending line is found and dropped; a network
+    // or server failure keeps the remaining lines for the next login.
+    // Resolves to whether the cart on screen is now the merged server cart.
+    const mergeGuestCart = useCallback(async (guestCart) => {
+        let remaining = guestCart;
+        let batchSize = MAX_BATCH_OPERATIONS;
+        let mergedItems = null;
+        let dropped = 0;
+        while (remaining.length > 0) {
+            const batch = remaining.slice(0, batchSize);
+            const result = await postCartOperations(toAddOperations(batch));
+            if (result.ok) {
+                mergedItems = result.items;
+            } else if (isTransientFailure(result)) {
+                toast.error(`Could not add your saved cart items yet: ${result.message}`);
+                console.error('Failed to merge guest cart:', result);
+                return false;
+            } else if (batch.length > 1) {
+                batchSize = Math.ceil(batch.length / 2);
+                continue;
+            } else {
+                dropped++;
+                console.error('Dropped guest cart line rejected by the server:', batch[0], result.message);
+                batchSize = MAX_BATCH_OPERATIONS;
+            }
+            remaining = remaining.slice(batch.length);
+            writeGuestCart(remaining);
+        }
+        if (dropped > 0) {
+            toast.warn(`${dropped} saved cart item(s) are no longer available and were removed.`);
+        }
+        if (mergedItems === null) {
+            return false;
+        }
+        setCartItems(mergedItems);
+        return true;
+    }, [postCartOperations]);
+
     const addToCart = useCallback(async (bookId, quantity) => {
         if (!user || !user.accessToken) {
-            toast.error("Please log in to add items to the cart.");
+            const guestCart = readGuestCart();
+            const existing = guestCart.find(item => item.bookId === bookId);
+            if (existing) {
+                existing.quantity += quantity;
+            } else {
+                guestCart.push({ bookId, quantity });
+            }
+            writeGuestCart(guestCart);
+            toast.info("Added to your cart. Log in to check out.");
+            fetchGuestCartItems();
             return;
         }
 
@@ -107,11 +292,11 @@ export const CartProvider = ({ children }) => {
             toast.error(`Network error adding to cart: ${error.message}`);
             console.error('Network error adding to cart:', error);
         }
-    }, [user]);
+    }, [user, fetchGuestCartItems]);
 
     const updateCartItemQuantity = useCallback(async (cartItemId, quantity) => {
         if (!user || !user.accessToken) {
-            toast.error("Please log in to update cart items.");
+            setGuestQuantity(cartItemId, quantity);
             return;
         }
         if (quantity <= 0) {
@@ -143,11 +328,13 @@ export const CartProvider = ({ children }) => {
             toast.error(`Network error updating cart: ${error.message}`);
             console.error('Network error updating cart:', error);
         }
-    }, [user]);
+    }, [user, removeFromCart, setGuestQuantity]);
 
     const clearCart = useCallback(async () => {
         if (!user || !user.accessToken) {
-            toast.error("Please log in to clear your cart.");
+            writeGuestCart([]);
+            setCartItems([]);
+            toast.info("Your cart has been cleared.");
             return;
         }
 
@@ -175,8 +362,21 @@ export const CartProvider = ({ children }) => {
     }, [user]);
 
     useEffect(() => {
-        fetchCartItems();
-    }, [fetchCartItems]);
+        const guestCart = readGuestCart();
+        if (!user || !user.accessToken || guestCart.length === 0) {
+            fetchCartItems();
+            return;
+        }
+        setLoadingCart(true);
+        mergeGuestCart(guestCart)
+            .then((merged) => {
+                if (merged) {
+                    setLoadingCart(false);
+                } else {
+                    fetchCartItems();
+                }
+            });
+    }, [user, fetchCartItems, mergeGuestCart]);
 
     const getTotalPrice = useCallback(() => {
         return cartItems.reduce((total, item) => {
@@ -233,6 +433,7 @@ export const CartProvider = ({ children }) => {
         cartError,
         fetchCartItems,
         addToCart,
+        applyCartOperations,
         updateCartItemQuantity,
         removeFromCart,
         clearCart,
@@ -20,10 +20,26 @@ const authHeader = () => {
   }
 };
 
-// Function to get all books
+// Function to get all books (unpaged; the endpoint is paginated by default)
 const getAllBooks = () => {
   // CORRECTED: Using BOOKS_API_URL
-  return axios.get(BOOKS_API_URL);
+  return axios.get(BOOKS_API_URL, { params: { all: true } });
+};
+
+// Function to get one keyset page of books; pass the previous page's nextCursor to continue.
+// fields is "summary" (default, no description), "full" or a comma list such as "id,title,price"
+const getBookPage = ({ sort, cursor, size, fields } = {}) => {
+  return axios.get(BOOKS_API_URL, { params: { sort, cursor, size, fields } });
+};
+
+// Function to run a ranked full-text search over title, author and description
+const searchBooks = (q, { page = 0, size } = {}) => {
+  return axios.get(`${BOOKS_API_URL}/search`, { params: { q, page, size } });
+};
+
+// Function to get typeahead completions (titles and authors) for a prefix
+const suggestBooks = (prefix, limit = 10) => {
+  return axios.get(`${BOOKS_API_URL}/suggest`, { params: { prefix, limit } });
 };
 
 // Function to get a book by its ID
@@ -53,6 +69,9 @@ const deleteBook = (id) => {
 
 const bookService = {
   getAllBooks,
+  getBookPage,
+  searchBooks,
+  suggestBooks,
   getBookById,
   addBook,
   updateBook,
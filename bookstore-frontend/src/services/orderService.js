@@ -19,14 +19,16 @@ const getToken = () => {
     }
 };
 
-export const placeOrder = async () => {
+// Pass the same idempotencyKey when retrying a checkout so the server returns the original order
+export const placeOrder = async (idempotencyKey = crypto.randomUUID()) => {
     try {
         const token = getToken();
         const response = await fetch(`${API_BASE_URL}/orders`, {
             method: 'POST',
             headers: {
                 'Authorization': `Bearer ${token}`,
-                'Content-Type': 'application/json'
+                'Content-Type': 'application/json',
+                'Idempotency-Key': idempotencyKey
             },
             body: JSON.stringify({})
         });